@@ -0,0 +1,127 @@
+package Server;
+
+import common.WireProtocol;
+import model.Question;
+import model.Quiz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Servidor partilhado pelos benchmarks (um por JVM): porta livre, sem vigiar o ficheiro de perguntas
+// e com o log só para avisos. Os jogos são criados à mão, com ligações em memória (MemorySink).
+final class BenchServer {
+    static final int QUESTIONS = 10;
+
+    private static Server server;
+    private static PreparedQuiz quiz;
+
+    private BenchServer() {}
+
+    static synchronized Server get() {
+        if (server == null) {
+            // O log é estático e lido no arranque: só ele continua como propriedade
+            System.setProperty("iskahoot.log.level", "warn");
+            ServerConfig config = ServerConfig.systemProperties()
+                    .port(0)
+                    .quizWatch(false)
+                    .journal(null, ServerConfig.DEFAULT_JOURNAL_SEGMENT_MB, ServerConfig.DEFAULT_JOURNAL_FLUSH_MILLIS)
+                    .build();
+            try {
+                File json = File.createTempFile("iskahoot-bench-", ".json");
+                json.deleteOnExit();
+                Files.write(json.toPath(), questionsJson().getBytes(StandardCharsets.UTF_8));
+                server = new Server(json.getPath(), config);
+                quiz = new PreparedQuiz(new Quiz("Benchmark", questions()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return server;
+    }
+
+    static PreparedQuiz quiz() {
+        get();
+        return quiz;
+    }
+
+    // Jogo com todos os lugares ocupados por ligações em memória
+    static GameInfo game(int numTeams, int playersPerTeam, boolean legacy) {
+        Server s = get();
+        GameInfo game = new GameInfo("BNCH", numTeams, playersPerTeam, quiz, null, new GlobalLeaderboard(),
+                GameJournal.disabled());
+        for (int i = 0; i < numTeams * playersPerTeam; i++) {
+            MemorySink sink = new MemorySink(s, legacy ? 0 : WireProtocol.MAX_VERSION, "jogador" + i);
+            game.assignSlot(sink, -1);
+            game.clients.add(sink);
+        }
+        return game;
+    }
+
+    private static List<Question> questions() {
+        List<Question> questions = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            questions.add(new Question("Pergunta " + (q + 1) + " do benchmark?", 5, 2,
+                    Arrays.asList("Opção A", "Opção B", "Opção C", "Opção D")));
+        }
+        return questions;
+    }
+
+    // O servidor precisa de um ficheiro de perguntas para arrancar (o quiz dos jogos é feito acima)
+    private static String questionsJson() {
+        StringBuilder sb = new StringBuilder("{\"quizzes\": [{\"name\": \"Benchmark\", \"questions\": [");
+        for (int q = 0; q < QUESTIONS; q++) {
+            if (q > 0) sb.append(',');
+            sb.append("{\"question\": \"Pergunta ").append(q + 1).append(" do benchmark?\", \"points\": 5, \"correct\": 2,")
+                    .append(" \"options\": [\"Opção A\", \"Opção B\", \"Opção C\", \"Opção D\"]}");
+        }
+        return sb.append("]}]}").toString();
+    }
+
+    // Ligação sem socket: a mensagem passa pela fila de saída e os bytes do protocolo são só contados
+    static final class MemorySink extends ClientConnection {
+        private final String username;
+        long bytes;
+
+        MemorySink(Server server, int protocolVersion, String username) {
+            super(server);
+            this.protocolVersion = protocolVersion;
+            this.username = username;
+        }
+
+        // Sem login: o nome é dado à mão (aparece no top dos placares v2)
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public void send(EncodedMsg msg) {
+            if (!enqueue(msg)) return;
+            try {
+                EncodedMsg m;
+                while ((m = outQueue.poll()) != null) {
+                    bytes += protocolVersion > 0 ? m.binaryFrame(protocolVersion).length : m.legacyBytes().length;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        protected void abortConnection() {}
+
+        @Override
+        public void closeConnection() {}
+
+        @Override
+        protected boolean isClosed() {
+            return false;
+        }
+    }
+}
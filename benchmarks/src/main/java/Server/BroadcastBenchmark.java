@@ -0,0 +1,132 @@
+package Server;
+
+import common.Msg;
+import common.MsgFrames;
+import common.ScoreUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Envio a uma sala inteira: pergunta já codificada, mensagem nova (codificada no broadcast) e placar
+// (partilhado para clientes antigos, com top e posição próprios para clientes v2). As ligações são
+// MemorySink, por isso mede-se a fila de saída e a codificação, sem rede.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    private static final int PLAYERS_PER_TEAM = 4;
+
+    @State(Scope.Thread)
+    public static class Room {
+        @Param({"16", "256", "2048"})
+        public int players;
+
+        @Param({"binary", "legacy"})
+        public String protocol;
+
+        Server server;
+        GameInfo game;
+        int[] previous;
+        int[] scores;
+        int question;
+
+        // Jogo próprio de cada thread (a variante com 4 threads são 4 jogos em paralelo)
+        @Setup(Level.Trial)
+        public void setup() {
+            server = BenchServer.get();
+            int numTeams = Math.max(1, players / PLAYERS_PER_TEAM);
+            game = BenchServer.game(numTeams, PLAYERS_PER_TEAM, protocol.equals("legacy"));
+            previous = new int[numTeams];
+            scores = new int[numTeams];
+            for (int s = 0; s < game.getTotalPlayersNeeded(); s++) {
+                game.leaderboard.addPoints(s, s % 17);
+            }
+        }
+
+        EncodedMsg nextQuestion() {
+            question = (question + 1) % BenchServer.QUESTIONS;
+            return game.quiz.newQuestion(question, false);
+        }
+
+        // Metade das equipas pontua em cada ronda
+        ScoreUpdate nextScores() {
+            System.arraycopy(scores, 0, previous, 0, scores.length);
+            for (int t = question & 1; t < scores.length; t += 2) {
+                scores[t] += 5;
+            }
+            question = (question + 1) % BenchServer.QUESTIONS;
+            return ScoreUpdate.delta(question, question + 1, BenchServer.QUESTIONS, previous, scores);
+        }
+    }
+
+    @Benchmark
+    public void broadcastPrepared(Room room) {
+        room.server.broadcast(room.game, room.nextQuestion());
+    }
+
+    // Mensagem nova a cada envio: inclui codificar (uma vez) no custo
+    @Benchmark
+    public void broadcastFresh(Room room) {
+        room.server.broadcast(room.game, new Msg(Msg.Type.UPDATE_SCORE, "Ronda " + room.question++));
+    }
+
+    @Benchmark
+    public void sendScoreboard(Room room) {
+        room.server.sendScoreboard(room.game, Msg.Type.UPDATE_SCORE, room.nextScores(), room.scores);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void sendScoreboard_4(Room room) {
+        room.server.sendScoreboard(room.game, Msg.Type.UPDATE_SCORE, room.nextScores(), room.scores);
+    }
+
+    // Construção do placar, sem envio: HTML (clientes antigos) contra delta binário (v2)
+    @State(Scope.Thread)
+    public static class Board {
+        @Param({"4", "64", "1024"})
+        public int teams;
+
+        Server server;
+        int[] previous;
+        int[] scores;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            server = BenchServer.get();
+            previous = new int[teams];
+            scores = new int[teams];
+            for (int t = 0; t < teams; t++) {
+                previous[t] = t * 3;
+                scores[t] = t % 2 == 0 ? previous[t] + 5 : previous[t];
+            }
+        }
+    }
+
+    @Benchmark
+    public String scoreSummaryHtml(Board board) {
+        return board.server.getScoreSummary(3, BenchServer.QUESTIONS, board.scores);
+    }
+
+    @Benchmark
+    public byte[] scoreUpdateDelta(Board board) throws IOException {
+        ScoreUpdate update = ScoreUpdate.delta(3, 3, BenchServer.QUESTIONS, board.previous, board.scores);
+        return MsgFrames.encode(new Msg(Msg.Type.UPDATE_SCORE, update));
+    }
+}
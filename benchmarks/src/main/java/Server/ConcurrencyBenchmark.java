@@ -0,0 +1,138 @@
+package Server;
+
+import model.GameState;
+import model.Quiz;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Caminho das respostas: latch (rondas individuais), barreira (rondas de equipa) e pontos das equipas.
+// Cada operação tem variantes com 1, 4 e todas as threads, todas sobre o mesmo objeto (contenção real).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+
+    // Respostas esperadas por ronda: grande para as rondas quase nunca fecharem durante a medição
+    private static final int ROUND_SIZE = 1 << 20;
+
+    @Param({"4", "64"})
+    public int numTeams;
+
+    private ModifiedCountDownLatch latch;
+    private volatile int latchRound;
+    private TeamBarrier barrier;
+    private volatile int barrierRound;
+    private int[] membersPerTeam;
+    private GameState gameState;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    // Cada thread responde por uma equipa diferente (como jogadores de equipas diferentes)
+    @State(Scope.Thread)
+    public static class Player {
+        int teamId;
+
+        @Setup(Level.Trial)
+        public void setup(ConcurrencyBenchmark bench) {
+            teamId = bench.threadIds.getAndIncrement() % bench.numTeams;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        latch = new ModifiedCountDownLatch(2, 1, 10000, 0, round -> {});
+        latchRound = latch.reset(ROUND_SIZE);
+        barrier = new TeamBarrier(numTeams, (round, teamId) -> {}, round -> {});
+        membersPerTeam = new int[numTeams];
+        Arrays.fill(membersPerTeam, ROUND_SIZE);
+        barrierRound = barrier.reset(membersPerTeam);
+        gameState = new GameState(new Quiz("benchmark", Collections.emptyList()), numTeams);
+    }
+
+    private int countDown() {
+        int bonus = latch.countDown(latchRound);
+        if (latch.getRemaining() == 0) {
+            latchRound = latch.reset(ROUND_SIZE);
+        }
+        return bonus;
+    }
+
+    private void playerFinished(Player player) {
+        barrier.playerFinished(barrierRound, player.teamId);
+        if (barrier.allResponded()) {
+            barrierRound = barrier.reset(membersPerTeam);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int latchCountDown_1() {
+        return countDown();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int latchCountDown_4() {
+        return countDown();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int latchCountDown_max() {
+        return countDown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void barrierPlayerFinished_1(Player player) {
+        playerFinished(player);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void barrierPlayerFinished_4(Player player) {
+        playerFinished(player);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void barrierPlayerFinished_max(Player player) {
+        playerFinished(player);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int addPointsToTeam_1(Player player) {
+        return gameState.addPointsToTeam(player.teamId, 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int addPointsToTeam_4(Player player) {
+        return gameState.addPointsToTeam(player.teamId, 1);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int addPointsToTeam_max(Player player) {
+        return gameState.addPointsToTeam(player.teamId, 1);
+    }
+}
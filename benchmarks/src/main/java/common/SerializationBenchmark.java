@@ -0,0 +1,92 @@
+package common;
+
+import model.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Custo de codificar uma mensagem: serialização Java (stream de longa duração com reset, como a
+// ligação antiga, e stream nova por mensagem, como o EncodedMsg) contra a frame binária (MsgFrames).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"question", "html", "scoreUpdate"})
+    public String content;
+
+    private Msg msg;
+    private ByteArrayOutputStream sharedBytes;
+    private ObjectOutputStream sharedStream;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        switch (content) {
+            case "question":
+                msg = new Msg(Msg.Type.NEW_QUESTION, new Question("Qual é o animal terrestre mais rápido?", 5, 2,
+                        Arrays.asList("Leão", "Chita", "Cavalo", "Leopardo")));
+                break;
+            case "html":
+                msg = new Msg(Msg.Type.UPDATE_SCORE, scoreHtml(8));
+                break;
+            default:
+                int[] previous = new int[8];
+                int[] current = new int[8];
+                for (int t = 0; t < current.length; t += 2) current[t] = 5;
+                msg = new Msg(Msg.Type.UPDATE_SCORE, ScoreUpdate.delta(1, 1, 10, previous, current));
+        }
+        sharedBytes = new ByteArrayOutputStream();
+        sharedStream = new ObjectOutputStream(sharedBytes);
+    }
+
+    // O mesmo placar que o servidor envia aos clientes antigos
+    private static String scoreHtml(int teams) {
+        StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'><h3>Placar Atual (Pergunta 1/10)</h3>");
+        sb.append("<table border='1' style='margin: auto;'><tr><th>Equipa</th><th>Pontos</th></tr>");
+        for (int t = 0; t < teams; t++) {
+            sb.append("<tr><td>Equipa ").append(t + 1).append("</td><td>").append(t * 5).append("</td></tr>");
+        }
+        return sb.append("</table></div></html>").toString();
+    }
+
+    @Benchmark
+    public int javaSharedStream() throws IOException {
+        sharedBytes.reset();
+        sharedStream.writeObject(msg);
+        sharedStream.reset();
+        sharedStream.flush();
+        return sharedBytes.size();
+    }
+
+    @Benchmark
+    public byte[] javaFreshStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(msg);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] binaryFrame() throws IOException {
+        return MsgFrames.encode(msg);
+    }
+}
@@ -0,0 +1,237 @@
+package Server;
+
+import common.Msg;
+import model.GameState;
+import model.Question;
+import utils.EventLog;
+
+import java.io.IOException;
+
+// Estado e lógica de protocolo comuns a uma ligação de cliente, independente do motor de rede
+public abstract class ClientConnection {
+    protected final Server server;
+    protected final OutboundQueue outQueue;
+    private String username;
+    private String gameId;
+    // Lugar e equipa atribuídos no login (fixos até a ligação sair do jogo)
+    private int slot = -1;
+    private int teamId = -1;
+    // Versão do protocolo binário negociada (0: serialização Java antiga)
+    protected int protocolVersion = 0;
+
+    protected ClientConnection(Server server) {
+        this.server = server;
+        this.outQueue = server.newOutboundQueue();
+    }
+
+    public void send(Msg msg) {
+        send(new EncodedMsg(msg));
+    }
+
+    // Envia bytes já codificados (partilhados entre ligações num broadcast).
+    // Não bloqueia: a mensagem vai para a fila de saída da ligação.
+    public abstract void send(EncodedMsg msg);
+
+    // Fecha já, descartando o que está por enviar
+    protected abstract void abortConnection();
+
+    // Enfileira a mensagem; se o cliente não está a acompanhar é desligado
+    protected boolean enqueue(EncodedMsg msg) {
+        if (outQueue.offer(msg)) {
+            server.getMetrics().messageOut(msg.getMsg().type);
+            return true;
+        }
+        EventLog.warn("Cliente lento desligado: {} ({} mensagens por enviar)",
+                username != null ? username : "N/A", outQueue.depth());
+        server.getOutboundStats().evictions.increment();
+        server.removeClient(this);
+        abortConnection();
+        return false;
+    }
+
+    public abstract void closeConnection();
+
+    // Tamanho da mensagem no protocolo desta ligação (para os eventos JFR)
+    int encodedSize(EncodedMsg msg) {
+        try {
+            return protocolVersion > 0 ? msg.binaryFrame(protocolVersion).length : msg.legacyBytes().length;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    protected abstract boolean isClosed();
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getGameId() {
+        return gameId;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    int getTeamId() {
+        return teamId;
+    }
+
+    // Chamado por GameInfo.assignSlot no login
+    void seat(int slot, int teamId) {
+        this.slot = slot;
+        this.teamId = teamId;
+    }
+
+    // Trata a primeira mensagem da ligação. Devolve false se a ligação foi recusada (e fechada).
+    protected boolean handleFirstMessage(Msg message) {
+        server.getMetrics().messageIn(message.type);
+        if (message.type != Msg.Type.LOGIN) {
+            send(new Msg(Msg.Type.LOGIN_ERROR, "Protocolo inválido: Primeira mensagem não é LOGIN."));
+            closeConnection();
+            return false;
+        }
+        return handleLogin(message);
+    }
+
+    private boolean handleLogin(Msg msg) {
+        String content = (String) msg.content;
+        String[] parts = content.split("\\|");
+
+        if (parts.length < 3) {
+            GameEvents.login(content, null, 0, protocolVersion, false, "formato inválido");
+            send(new Msg(Msg.Type.LOGIN_ERROR, "Formato de login inválido. Uso: <Jogo>|<Equipa>|<Username>"));
+            closeConnection();
+            return false;
+        }
+
+        String attemptedGameId = parts[0];
+        int requestedTeam;
+        try {
+            requestedTeam = Integer.parseInt(parts[1].trim()) - 1;   // Equipas começam em 1 no login
+        } catch (NumberFormatException e) {
+            requestedTeam = -1;
+        }
+        String attemptedUsername = parts[2];
+
+        // Reservar o username (falha se já está em uso noutro jogo ou ligação)
+        if (!server.reserveUsername(attemptedUsername, this)) {
+            EventLog.info("Login Rejeitado: Username '{}' já em uso.", attemptedUsername);
+            GameEvents.login(attemptedUsername, attemptedGameId, requestedTeam + 1, protocolVersion, false, "username em uso");
+            send(new Msg(Msg.Type.LOGIN_ERROR, "Username já em uso."));
+            closeConnection();
+            return false;
+        }
+
+        this.username = attemptedUsername;
+        this.gameId = attemptedGameId;
+
+        // Avisa o servidor. O servidor verifica se o jogo existe e está cheio, e envia LOGIN_OK ou LOGIN_ERROR e fecha a conexão.
+        server.onClientLoggedIn(this, attemptedGameId, requestedTeam);
+
+        // garantir que não continua a ler mensagens.
+        return !isClosed();
+    }
+
+    protected void handleMessage(Msg msg) {
+        server.getMetrics().messageIn(msg.type);
+        try {
+            if (gameId == null || server.getGameState(gameId) == null) return;
+
+            switch (msg.type) {
+                case SEND_ANSWER:
+                    int answerIndex = (int) msg.content;
+                    // A resposta fica presa à ronda em que chegou (pode ser aplicada mais tarde, no modo INBOX)
+                    long round = server.getOpenRound(gameId);
+                    if (round == GameInfo.NO_ROUND) {
+                        EventLog.info("Jogo {} | Resposta de {} fora do tempo ignorada.", gameId, username);
+                        break;
+                    }
+                    // No modo INBOX a resposta é aplicada pelo consumidor do jogo, por ordem de chegada
+                    GameInbox inbox = server.getInbox(gameId);
+                    if (inbox != null) {
+                        inbox.submit(this, round, answerIndex);
+                    } else {
+                        applyAnswer(round, answerIndex);
+                    }
+                    break;
+
+                default:
+                    EventLog.warn("Mensagem desconhecida: {}", msg.type);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Aplica a resposta à ronda em que chegou: regista-a, conta no latch/barreira e dá os pontos.
+    // Se entretanto a ronda fechou (tempo esgotado ou já na pausa do placar), a resposta é descartada.
+    void applyAnswer(long round, int answerIndex) {
+        GameState gameState = server.getGameState(gameId);
+        if (gameState == null) return;
+        if (round != server.getOpenRound(gameId)) {
+            EventLog.info("Jogo {} | Resposta de {} chegou depois de a ronda fechar (ignorada).", gameId, username);
+            return;
+        }
+        int questionIndex = (int) (round >>> 32);
+        Question currentQ = gameState.getQuiz().getQuestions().get(questionIndex);
+
+        boolean correct = (answerIndex == currentQ.getCorrect());
+
+        // Uma resposta por jogador e por ronda: repetidas não voltam a contar
+        RoundAnswers answers = server.getCurrentAnswers(gameId);
+        if (answers == null || !answers.record(slot, answerIndex, correct)) {
+            EventLog.info("Jogo {} | Resposta repetida de {} ignorada.", gameId, username);
+            return;
+        }
+        server.getMetrics().answerLatency.record(answers.getArrivalNanos(slot));
+        server.getJournal().answer(gameId, slot, questionIndex, answerIndex, correct, answers.getArrivalNanos(slot));
+
+        if (server.isTeamRound(gameId)) {
+            // --- MODO EQUIPA ---
+            TeamBarrier barrier = server.getCurrentBarrier(gameId);
+            if (barrier != null) {
+                if (!barrier.playerFinished((int) round, teamId)) {
+                    EventLog.info("Jogo {} | Resposta de {} é de uma ronda já fechada (ignorada).", gameId, username);
+                    return;
+                }
+
+                // A equipa é pontuada no fim; o jogador fica com os pontos base da pergunta
+                if (correct) {
+                    server.addPlayerPoints(gameId, slot, username, currentQ.getPoints());
+                }
+
+                String status = correct ? "CERTO (aguarda equipa)" : "ERRADO (aguarda equipa)";
+                EventLog.info("Jogo {} | Equipa: Jogador {} respondeu: {}", gameId, username, status);
+            }
+        } else {
+            // --- MODO INDIVIDUAL ---
+            ModifiedCountDownLatch latch = server.getCurrentLatch(gameId);
+            if (latch != null) {
+                int bonus = latch.countDown((int) round);
+                if (bonus == 0) {
+                    EventLog.info("Jogo {} | Resposta de {} é de uma ronda já fechada (ignorada).", gameId, username);
+                } else if (correct) {
+                    int points = currentQ.getPoints() * bonus;
+
+                    server.addTeamPoints(gameId, teamId, points);
+                    server.addPlayerPoints(gameId, slot, username, points);
+
+                    EventLog.info("Jogo {} | Individual: {} ganhou {} pontos (Bónus: {})", gameId, username, points, bonus);
+                } else {
+                    EventLog.info("Jogo {} | Individual: {} errou.", gameId, username);
+                }
+            }
+        }
+    }
+
+    // Chamado pelo motor de rede quando a ligação cai
+    protected void onDisconnected() {
+        if (!isClosed()) {
+            EventLog.info("Cliente desconectado: {}", username != null ? username : "N/A");
+        }
+        server.removeClient(this);
+        closeConnection();
+    }
+}
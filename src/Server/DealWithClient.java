@@ -1,175 +1,209 @@
 package Server;
 
 import common.Msg;
-import model.Question;
+import common.MsgFrames;
+import common.WireProtocol;
+import utils.EventLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class DealWithClient extends Thread {
+// Motor bloqueante: uma tarefa por ligação; corre numa thread normal ou virtual conforme o ServerConfig
+public class DealWithClient extends ClientConnection implements Runnable {
     private Socket socket;
+    private final byte[] prefix;
+    private WireProtocol.Protocol protocol;
+    // Só há um escritor de cada vez; corre no executor dos clientes enquanto houver mensagens na fila
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private volatile boolean closing = false;
+
+    private OutputStream socketOut;
+    // Protocolo antigo (serialização Java)
     private ObjectOutputStream out;
     private ObjectInputStream in;
-    private Server server;
-    private String username;
-    private String gameId; // NOVO
-    private boolean lastAnswerCorrect = false;
+    // Protocolo binário (MsgFrames)
+    private DataOutputStream frameOut;
+    private DataInputStream frameIn;
 
     public DealWithClient(Socket socket, Server server) {
-        this.socket = socket;
-        this.server = server;
-    }
-
-    public String getUsername() {
-        return username;
+        this(socket, new byte[0], server);
     }
 
-    public String getGameId() {
-        return gameId;
+    // prefix: bytes já lidos do socket por outro motor (ex: NioEngine ao entregar um cliente antigo)
+    public DealWithClient(Socket socket, byte[] prefix, Server server) {
+        super(server);
+        this.socket = socket;
+        this.prefix = prefix;
     }
 
     @Override
     public void run() {
         try {
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
+            if (!negotiateProtocol()) {
+                closeConnection();
+                return;
+            }
 
-            Object received = in.readObject();
+            Object received = readMsg();
             if (received instanceof Msg) {
-                Msg message = (Msg) received;
-
-                if (message.type != Msg.Type.LOGIN) {
-                    send(new Msg(Msg.Type.LOGIN_ERROR, "Protocolo inválido: Primeira mensagem não é LOGIN."));
-                    closeConnection();
-                    return;
-                }
-
-                if (!handleLogin(message)) {
+                if (!handleFirstMessage((Msg) received)) {
                     return;
                 }
             }
 
             while (true) {
-                received = in.readObject();
+                received = readMsg();
                 if (received instanceof Msg) {
                     Msg message = (Msg) received;
                     handleMessage(message);
                 }
             }
         } catch (Exception e) {
-            if (!socket.isClosed()) {
-                System.out.println("Cliente desconectado: " + (username != null ? username : "N/A"));
-            }
-            server.removeClient(this);
-            closeConnection();
+            onDisconnected();
         }
     }
 
-    private boolean handleLogin(Msg msg) throws Exception {
-        String content = (String) msg.content;
-        String[] parts = content.split("\\|");
+    // Decide o protocolo pelos primeiros bytes: cabeçalho do ObjectOutputStream ou HELLO binário
+    private boolean negotiateProtocol() throws IOException {
+        InputStream rawIn = socket.getInputStream();
+        if (prefix.length > 0) {
+            rawIn = new SequenceInputStream(new ByteArrayInputStream(prefix), rawIn);
+        }
+        BufferedInputStream bufferedIn = new BufferedInputStream(rawIn);
+
+        bufferedIn.mark(WireProtocol.HELLO_SIZE);
+        int b0 = bufferedIn.read();
+        int b1 = bufferedIn.read();
+        bufferedIn.reset();
+        if (b0 < 0 || b1 < 0) throw new EOFException();
+
+        socketOut = socket.getOutputStream();
+        if (WireProtocol.isLegacyHeader(b0, b1)) {
+            protocol = WireProtocol.Protocol.LEGACY;
+            out = new ObjectOutputStream(socketOut);
+            in = new ObjectInputStream(bufferedIn);
+            return true;
+        }
 
-        if (parts.length < 3) {
-            send(new Msg(Msg.Type.LOGIN_ERROR, "Formato de login inválido. Uso: <Jogo>|<Equipa>|<Username>"));
-            closeConnection();
+        frameIn = new DataInputStream(bufferedIn);
+        byte[] hello = new byte[WireProtocol.HELLO_SIZE];
+        frameIn.readFully(hello);
+        if (!WireProtocol.isHello(hello, 0)) {
+            EventLog.warn("Protocolo desconhecido de {}", socket.getRemoteSocketAddress());
             return false;
         }
 
-        String attemptedGameId = parts[0];
-        String teamId = parts[1];
-        String attemptedUsername = parts[2];
+        int version = WireProtocol.negotiate(hello[3] & 0xFF);
+        frameOut = new DataOutputStream(new BufferedOutputStream(socketOut));
+        frameOut.write(WireProtocol.hello(version));
+        frameOut.flush();
+        protocol = WireProtocol.Protocol.BINARY;
+        protocolVersion = version;
+        return version != WireProtocol.VERSION_REJECTED;
+    }
 
-        // Verificar se o username já está em uso
-        if (server.isUsernameTaken(attemptedUsername)) {
-            System.out.println("Login Rejeitado: Username '" + attemptedUsername + "' já em uso.");
-            send(new Msg(Msg.Type.LOGIN_ERROR, "Username já em uso."));
-            closeConnection();
-            return false;
-        }
+    private Object readMsg() throws Exception {
+        return protocol == WireProtocol.Protocol.BINARY ? MsgFrames.read(frameIn) : in.readObject();
+    }
 
-        this.username = attemptedUsername;
-        this.gameId = attemptedGameId;
+    @Override
+    public void send(EncodedMsg msg) {
+        if (closing || socket.isClosed()) return;
+        if (enqueue(msg)) {
+            scheduleDrain();
+        }
+    }
 
-        // Avisa o servidor. O servidor verifica se o jogo existe e está cheio, e envia LOGIN_OK ou LOGIN_ERROR e fecha a conexão.
-        server.onClientLoggedIn(this, attemptedGameId);
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            server.executeClientTask(this::drain);
+        }
+    }
 
-        // garantir que não continua no run() loop.
-        if (socket.isClosed()) return false;
+    // Escritor da ligação: um cliente lento só atrasa esta tarefa, nunca quem fez o send()
+    private void drain() {
+        while (true) {
+            EncodedMsg msg;
+            try {
+                while ((msg = outQueue.poll()) != null) {
+                    write(msg);
+                }
+                if (frameOut != null) frameOut.flush();
+            } catch (Exception e) {
+                // Cliente já caiu: o ciclo de leitura trata da remoção
+                outQueue.clear();
+                closeSocket();
+                return;
+            }
 
-        return true;
+            drainScheduled.set(false);
+            if (closing && outQueue.isEmpty()) {
+                closeSocket();
+                return;
+            }
+            // Alguém pode ter enfileirado depois do último poll()
+            if ((outQueue.isEmpty() && !closing) || !drainScheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
     }
 
-    public void send(Msg msg) {
-        try {
-            if (socket.isClosed()) return;
-            out.writeObject(msg);
-            out.reset();
-        } catch (Exception e) {
-            // Ignorar erro de envio se cliente já caiu
+    private void write(EncodedMsg msg) throws IOException {
+        byte[] bytes;
+        if (protocol == WireProtocol.Protocol.BINARY) {
+            bytes = msg.binaryFrame(protocolVersion);
+            frameOut.write(bytes);
+        } else {
+            // O ObjectOutputStream não guarda nada em buffer depois de cada reset(): pode-se escrever por baixo dele
+            bytes = msg.legacyBytes();
+            socketOut.write(bytes);
         }
+        server.getMetrics().bytesSent.add(bytes.length);
     }
 
+    // Fecha depois de enviar o que está na fila (ex: LOGIN_ERROR, GAME_OVER)
+    @Override
     public void closeConnection() {
+        if (closing) return;
+        closing = true;
+        if (protocol == null) {
+            closeSocket();
+        } else {
+            scheduleDrain();
+        }
+    }
+
+    @Override
+    protected void abortConnection() {
+        closing = true;
+        outQueue.clear();
+        closeSocket();
+    }
+
+    private void closeSocket() {
         try {
             if (in != null) in.close();
             if (out != null) out.close();
+            if (frameIn != null) frameIn.close();
+            if (frameOut != null) frameOut.close();
             if (socket != null && !socket.isClosed()) socket.close();
         } catch (Exception e) {}
     }
 
-    private void handleMessage(Msg msg) {
-        try {
-            if (gameId == null || server.getGameState(gameId) == null) return;
-
-            switch (msg.type) {
-                case SEND_ANSWER:
-                    Question currentQ = server.getGameState(gameId).getCurrentQuestion();
-                    if (currentQ == null) return;
-
-                    int answerIndex = (int) msg.content;
-                    this.lastAnswerCorrect = (answerIndex == currentQ.getCorrect());
-
-                    if (server.isTeamRound(gameId)) {
-                        // --- MODO EQUIPA ---
-                        TeamBarrier barrier = server.getCurrentBarrier(gameId);
-                        if (barrier != null) {
-                            barrier.playerFinished();
-
-                            String status = this.lastAnswerCorrect ? "CERTO (aguarda equipa)" : "ERRADO (aguarda equipa)";
-                            System.out.println("Jogo " + gameId + " | Equipa: Jogador " + username + " respondeu: " + status);
-                        }
-                    } else {
-                        // --- MODO INDIVIDUAL ---
-                        ModifiedCountDownLatch latch = server.getCurrentLatch(gameId);
-                        if (latch != null) {
-                            int bonus = latch.countDown();
-
-                            if (this.lastAnswerCorrect) {
-                                int points = currentQ.getPoints() * bonus;
-
-                                int myTeamId = server.getTeamIdForPlayer(this, gameId);
-
-                                synchronized (server.getGameState(gameId)) {
-                                    server.getGameState(gameId).addPointsToTeam(myTeamId, points);
-                                }
-
-                                System.out.println("Jogo " + gameId + " | Individual: " + username + " ganhou " + points + " pontos (Bónus: " + bonus + ")");
-                            } else {
-                                System.out.println("Jogo " + gameId + " | Individual: " + username + " errou.");
-                            }
-                        }
-                    }
-                    break;
-
-                default:
-                    System.out.println("Mensagem desconhecida: " + msg.type);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
-    public boolean isLastAnswerCorrect() {
-        return lastAnswerCorrect;
+    @Override
+    protected boolean isClosed() {
+        return closing || socket.isClosed();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package Server;
+
+import common.Msg;
+import common.MsgFrames;
+import common.ScoreUpdate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Mensagem codificada uma única vez e partilhada (só leitura) por todas as ligações de um broadcast.
+// Cada protocolo é codificado na primeira vez que é pedido.
+// Uma mensagem que só clientes recentes percebem (ex: ScoreUpdate) leva uma alternativa para os clientes
+// antigos e os binários abaixo de minVersion; a alternativa só é construída se algum desses a pedir.
+public final class EncodedMsg {
+    private static final int STREAM_HEADER_SIZE = 4;    // STREAM_MAGIC + STREAM_VERSION
+
+    private final Msg msg;
+    private final int minVersion;
+    private final Supplier<Msg> compat;
+    private volatile Msg compatMsg;
+    private volatile byte[] binaryFrame;
+    private volatile byte[] compatFrame;
+    private volatile byte[] legacyBytes;
+
+    public EncodedMsg(Msg msg) {
+        this(msg, 0, null);
+    }
+
+    public EncodedMsg(Msg msg, int minVersion, Supplier<Msg> compat) {
+        this.msg = msg;
+        this.minVersion = minVersion;
+        this.compat = compat;
+    }
+
+    public Msg getMsg() {
+        return msg;
+    }
+
+    // Frame completa do protocolo binário (versão atual)
+    public byte[] binaryFrame() throws IOException {
+        byte[] frame = binaryFrame;
+        if (frame == null) {
+            frame = MsgFrames.encode(msg);
+            binaryFrame = frame;
+        }
+        return frame;
+    }
+
+    // Frame para uma ligação que negociou a versão indicada
+    public byte[] binaryFrame(int version) throws IOException {
+        if (compat == null || version >= minVersion) {
+            return binaryFrame();
+        }
+        byte[] frame = compatFrame;
+        if (frame == null) {
+            frame = MsgFrames.encode(compatMsg());
+            compatFrame = frame;
+        }
+        return frame;
+    }
+
+    private Msg compatMsg() {
+        if (compat == null) return msg;
+        Msg m = compatMsg;
+        if (m == null) {
+            m = compat.get();
+            compatMsg = m;
+        }
+        return m;
+    }
+
+    // Substitui um placar ainda por enviar a esta ligação. Se ambos são deltas, o novo passa a levar
+    // também as equipas do antigo (só esta ligação recebe a versão junta, codificada quando for enviada).
+    EncodedMsg supersede(EncodedMsg pending) {
+        if (msg.content instanceof ScoreUpdate && pending.msg.content instanceof ScoreUpdate) {
+            return withContent(ScoreUpdate.merge((ScoreUpdate) pending.msg.content, (ScoreUpdate) msg.content));
+        }
+        return this;
+    }
+
+    // Variante com outro conteúdo (ex: o placar de um só jogador); partilha a alternativa desta mensagem
+    EncodedMsg withContent(Object content) {
+        return new EncodedMsg(new Msg(msg.type, content), minVersion, compat != null ? this::compatMsg : null);
+    }
+
+    // Igual, com a frame binária já feita (ex: a partir do prefixo partilhado do placar, ver Server.sendScoreboard)
+    EncodedMsg withContent(Object content, byte[] frame) {
+        EncodedMsg variant = withContent(content);
+        variant.binaryFrame = frame;
+        return variant;
+    }
+
+    // Bytes que um ObjectOutputStream escreve para writeObject(msg) + reset(), sem o cabeçalho do stream
+    // (com a alternativa, se existir: os clientes antigos não conhecem as classes novas).
+    // Como cada envio antigo termina com reset(), estes bytes são válidos em qualquer ligação antiga.
+    public byte[] legacyBytes() throws IOException {
+        byte[] bytes = legacyBytes;
+        if (bytes == null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+            ObjectOutputStream oos = new ObjectOutputStream(buffer);
+            oos.writeObject(compatMsg());
+            oos.reset();
+            oos.flush();
+            byte[] all = buffer.toByteArray();
+            bytes = Arrays.copyOfRange(all, STREAM_HEADER_SIZE, all.length);
+            legacyBytes = bytes;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,95 @@
+package Server;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Códigos de jogo (4 letras, 26^4 possíveis) tirados de uma fila com todos os códigos livres, baralhada
+// no arranque. Alocar e libertar são O(1) seja qual for a ocupação (sem sortear e tentar outra vez).
+// Um código libertado vai para o fim da fila, por isso só volta a sair depois de todos os outros livres:
+// um cliente atrasado de um jogo que acabou dificilmente cai num jogo novo com o mesmo código.
+class GameCodeAllocator {
+    static final int CODE_LENGTH = 4;
+    static final int CAPACITY = 26 * 26 * 26 * 26;
+
+    private final int[] free = new int[CAPACITY];     // fila circular de códigos livres
+    private final boolean[] inUse = new boolean[CAPACITY];
+    private int head = 0;
+    private int available = CAPACITY;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    GameCodeAllocator() {
+        for (int i = 0; i < CAPACITY; i++) {
+            free[i] = i;
+        }
+        // Fisher-Yates: os códigos saem por ordem aleatória
+        SplittableRandom random = new SplittableRandom();
+        for (int i = CAPACITY - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = free[i];
+            free[i] = free[j];
+            free[j] = tmp;
+        }
+    }
+
+    // Devolve um código livre ou null se estão todos em uso
+    String allocate() {
+        int code;
+        lock.lock();
+        try {
+            if (available == 0) return null;
+            code = free[head];
+            head = (head + 1) % CAPACITY;
+            available--;
+            inUse[code] = true;
+        } finally {
+            lock.unlock();
+        }
+        return toString(code);
+    }
+
+    // Códigos que não estão em uso (libertados duas vezes ou nunca alocados) são ignorados:
+    // entrar duas vezes na fila daria o mesmo código a dois jogos
+    void release(String gameCode) {
+        int code = fromString(gameCode);
+        if (code < 0) return;
+        lock.lock();
+        try {
+            if (!inUse[code]) return;
+            inUse[code] = false;
+            free[(head + available) % CAPACITY] = code;
+            available++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inUse() {
+        lock.lock();
+        try {
+            return CAPACITY - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String toString(int code) {
+        char[] letters = new char[CODE_LENGTH];
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            letters[i] = (char) ('A' + code % 26);
+            code /= 26;
+        }
+        return new String(letters);
+    }
+
+    // -1 se não é um código válido
+    private static int fromString(String gameCode) {
+        if (gameCode == null || gameCode.length() != CODE_LENGTH) return -1;
+        int code = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            char c = gameCode.charAt(i);
+            if (c < 'A' || c > 'Z') return -1;
+            code = code * 26 + (c - 'A');
+        }
+        return code;
+    }
+}
@@ -0,0 +1,170 @@
+package Server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Eventos do JDK Flight Recorder: aparecem numa gravação normal (-XX:StartFlightRecording ou
+// jcmd <pid> JFR.start) na categoria IsKahoot, ao lado dos eventos do JDK (ex: jdk.JavaMonitorEnter,
+// jdk.ThreadPark para contenção em locks). Sem gravação, shouldCommit() é falso e o commit não faz nada;
+// os campos que custam a calcular só são preenchidos dentro desse if.
+final class GameEvents {
+    private GameEvents() {}
+
+    // Login aceite ou recusado (username e jogo como vieram no pedido)
+    static void login(String username, String gameId, int team, int protocolVersion, boolean accepted, String reason) {
+        Login event = new Login();
+        if (!event.shouldCommit()) return;
+        event.username = username;
+        event.gameId = gameId;
+        event.team = team;
+        event.protocolVersion = protocolVersion;
+        event.accepted = accepted;
+        event.reason = reason;
+        event.commit();
+    }
+
+    @Name("iskahoot.GameStart")
+    @Label("Início de jogo")
+    @Category({"IsKahoot", "Jogos"})
+    static final class GameStart extends Event {
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Quiz")
+        String quiz;
+
+        @Label("Equipas")
+        int teams;
+
+        @Label("Jogadores")
+        int players;
+
+        @Label("Perguntas")
+        int questions;
+    }
+
+    @Name("iskahoot.GameEnd")
+    @Label("Fim de jogo")
+    @Description("Dura desde o início do jogo até ao placar final")
+    @Category({"IsKahoot", "Jogos"})
+    static final class GameEnd extends Event {
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Jogadores no fim")
+        int players;
+
+        @Label("Perguntas")
+        int questions;
+
+        @Label("Equipa vencedora")
+        int winningTeam;
+
+        @Label("Pontos da vencedora")
+        int winningScore;
+    }
+
+    @Name("iskahoot.QuestionRound")
+    @Label("Ronda")
+    @Description("Dura desde o envio da pergunta até a ronda fechar (última resposta ou tempo esgotado)")
+    @Category({"IsKahoot", "Jogos"})
+    static final class QuestionRound extends Event {
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Pergunta")
+        int question;
+
+        @Label("Modo")
+        String mode;
+
+        @Label("Jogadores")
+        int players;
+
+        @Label("Respostas recebidas")
+        int answers;
+
+        @Label("Última resposta")
+        @Description("Tempo desde o envio da pergunta até à última resposta recebida")
+        @Timespan(Timespan.NANOSECONDS)
+        long lastAnswer;
+
+        @Label("Tempo esgotado")
+        boolean timedOut;
+    }
+
+    @Name("iskahoot.RoundTimeout")
+    @Label("Ronda fechada por tempo")
+    @Description("O latch ou a barreira não chegou a zero antes do tempo da ronda")
+    @Category({"IsKahoot", "Jogos"})
+    static final class RoundTimeout extends Event {
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Pergunta")
+        int question;
+
+        @Label("Espera")
+        String waitedOn;
+
+        @Label("Tempo da ronda")
+        @Timespan(Timespan.MILLISECONDS)
+        long timeout;
+
+        @Label("Jogadores")
+        int players;
+
+        @Label("Respostas recebidas")
+        int answers;
+    }
+
+    @Name("iskahoot.Broadcast")
+    @Label("Broadcast")
+    @Description("Enfileirar uma mensagem para todos os jogadores de um jogo")
+    @Category({"IsKahoot", "Rede"})
+    static final class Broadcast extends Event {
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Tipo")
+        String type;
+
+        @Label("Destinatários")
+        int recipients;
+
+        @Label("Bytes")
+        @Description("Soma do tamanho da mensagem no protocolo de cada destinatário")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("iskahoot.Login")
+    @Label("Login")
+    @Category({"IsKahoot", "Rede"})
+    static final class Login extends Event {
+        @Label("Username")
+        String username;
+
+        @Label("Jogo")
+        String gameId;
+
+        @Label("Equipa")
+        @Description("Começa em 1; 0 se não foi indicada")
+        int team;
+
+        @Label("Versão do protocolo")
+        @Description("0: serialização Java antiga")
+        int protocolVersion;
+
+        @Label("Aceite")
+        boolean accepted;
+
+        @Label("Motivo da recusa")
+        String reason;
+    }
+}
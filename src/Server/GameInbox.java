@@ -0,0 +1,73 @@
+package Server;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Caixa de entrada das respostas de um jogo (modo AnswerMode.INBOX).
+// Muitos produtores (as ligações) e um só consumidor: a fila é uma lista ligada em que cada produtor
+// só faz um getAndSet na cauda. O consumidor corre no scheduler dos jogos, nunca em duas threads ao
+// mesmo tempo, e aplica as respostas por ordem de chegada, em lotes.
+class GameInbox {
+    static final int BATCH_SIZE = 256;
+
+    private static final class Answer {
+        final ClientConnection client;
+        final long round;
+        final int option;
+        volatile Answer next;
+
+        Answer(ClientConnection client, long round, int option) {
+            this.client = client;
+            this.round = round;
+            this.option = option;
+        }
+    }
+
+    private final Executor executor;
+    private final AtomicReference<Answer> tail;
+    private Answer head;    // nó já consumido (só o consumidor mexe)
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    GameInbox(Executor executor) {
+        this.executor = executor;
+        Answer stub = new Answer(null, GameInfo.NO_ROUND, 0);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    // Chamado pelas ligações: não toca no estado do jogo. round é a ronda aberta quando a resposta chegou.
+    void submit(ClientConnection client, long round, int option) {
+        Answer node = new Answer(client, round, option);
+        Answer prev = tail.getAndSet(node);
+        prev.next = node;
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        int applied = 0;
+        Answer next;
+        while (applied < BATCH_SIZE && (next = head.next) != null) {
+            head = next;
+            try {
+                next.client.applyAnswer(next.round, next.option);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            applied++;
+        }
+
+        if (head.next != null) {
+            // Lote cheio: dá a vez aos outros jogos e continua depois
+            executor.execute(this::drain);
+            return;
+        }
+        scheduled.set(false);
+        // Um produtor pode ter ligado um nó depois da verificação acima
+        if (head.next != null && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+}
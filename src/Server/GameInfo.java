@@ -0,0 +1,129 @@
+package Server;
+
+import model.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Estado de um jogo ativo no servidor
+class GameInfo {
+    final String gameId;
+    final int numTeamsExpected;
+    final int playersPerTeamExpected;
+    final GameState gameState;
+    // Perguntas e mensagens já codificadas da versão do catálogo em que o jogo foi criado
+    final PreparedQuiz quiz;
+    final List<ClientConnection> clients = new ArrayList<>();
+    final ReentrantLock clientsLock = new ReentrantLock();
+    // Tabela de lugares: o lugar s pertence à equipa s / playersPerTeamExpected.
+    // Só é escrita com clientsLock (login e saída); a pontuação lê-a sem locks.
+    final AtomicReferenceArray<ClientConnection> slots;
+    private final int[] teamSizes;     // jogadores sentados em cada equipa (com clientsLock)
+    boolean started = false;           // com clientsLock
+    // Pontos de cada jogador (por lugar), ordenados a cada resposta
+    final PlayerLeaderboard leaderboard;
+    // Entradas deste jogo na classificação de todo o servidor
+    private final GlobalLeaderboard global;
+    final GlobalLeaderboard.Board globalBoard;
+    // Diário dos eventos do jogo (ver JournalReplay)
+    final GameJournal journal;
+    // Lidos pelas threads das ligações enquanto o GameRunner os troca a cada ronda
+    volatile ModifiedCountDownLatch currentLatch;
+    volatile TeamBarrier currentBarrier;
+    volatile RoundAnswers currentAnswers;
+    // Só no modo AnswerMode.INBOX (senão null)
+    final GameInbox inbox;
+    volatile boolean isTeamRound = false;
+    // Ronda aberta a respostas: [pergunta (32 bits) | ronda do latch/barreira (32 bits)], ou NO_ROUND fora
+    // da recolha. Cada resposta guarda o valor quando chega e só é aplicada se a ronda ainda for a mesma.
+    static final long NO_ROUND = -1;
+    volatile long openRound = NO_ROUND;
+
+    static long round(int questionIndex, int syncRound) {
+        return ((long) questionIndex << 32) | (syncRound & 0xFFFFFFFFL);
+    }
+
+    GameInfo(String gameId, int numTeams, int playersPerTeam, PreparedQuiz quiz, GameInbox inbox, GlobalLeaderboard global,
+             GameJournal journal) {
+        this.gameId = gameId;
+        this.inbox = inbox;
+        this.numTeamsExpected = numTeams;
+        this.playersPerTeamExpected = playersPerTeam;
+        this.quiz = quiz;
+        this.gameState = new GameState(quiz.getQuiz(), numTeams);
+        this.slots = new AtomicReferenceArray<>(numTeams * playersPerTeam);
+        this.teamSizes = new int[numTeams];
+        this.leaderboard = new PlayerLeaderboard(numTeams * playersPerTeam);
+        this.global = global;
+        this.globalBoard = new GlobalLeaderboard.Board(gameId, numTeams * playersPerTeam, numTeams);
+        this.journal = journal;
+    }
+
+    // Pontos de uma equipa: placar do jogo e classificação global
+    void addTeamPoints(int teamId, int points) {
+        int total = gameState.addPointsToTeam(teamId, points);
+        global.updateTeam(globalBoard, teamId, total);
+        journal.teamPoints(gameId, teamId, points, total);
+    }
+
+    // Pontos de um jogador: classificação do jogo e classificação global
+    void addPlayerPoints(int slot, String username, int points) {
+        int total = leaderboard.addPoints(slot, points);
+        if (total >= 0) {
+            global.updatePlayer(globalBoard, slot, username, total);
+            journal.playerPoints(gameId, slot, points, total);
+        }
+    }
+
+    // Senta o cliente na equipa pedida (0..numTeams-1) ou, se essa estiver cheia ou não existir,
+    // na equipa com menos jogadores. Devolve false se não há lugares. Chamar com clientsLock.
+    boolean assignSlot(ClientConnection client, int requestedTeam) {
+        int team = requestedTeam;
+        if (team < 0 || team >= numTeamsExpected || teamSizes[team] >= playersPerTeamExpected) {
+            team = -1;
+            for (int t = 0; t < numTeamsExpected; t++) {
+                if (teamSizes[t] < playersPerTeamExpected && (team < 0 || teamSizes[t] < teamSizes[team])) {
+                    team = t;
+                }
+            }
+            if (team < 0) return false;
+        }
+
+        int first = team * playersPerTeamExpected;
+        for (int s = first; s < first + playersPerTeamExpected; s++) {
+            if (slots.get(s) == null) {
+                slots.set(s, client);
+                teamSizes[team]++;
+                client.seat(s, team);
+                leaderboard.join(s);
+                global.playerJoined(globalBoard, s);
+                journal.playerJoined(gameId, s, team, client.getUsername());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Liberta o lugar do cliente (se tinha um). Chamar com clientsLock.
+    void releaseSlot(ClientConnection client) {
+        int s = client.getSlot();
+        if (s >= 0 && slots.get(s) == client) {
+            slots.set(s, null);
+            teamSizes[client.getTeamId()]--;
+            leaderboard.leave(s);
+            global.removePlayer(globalBoard, s);
+            journal.playerLeft(gameId, s);
+        }
+    }
+
+    // Cópia do número de jogadores por equipa. Chamar com clientsLock.
+    int[] getTeamSizes() {
+        return teamSizes.clone();
+    }
+
+    int getTotalPlayersNeeded() {
+        return numTeamsExpected * playersPerTeamExpected;
+    }
+}
@@ -0,0 +1,391 @@
+package Server;
+
+import utils.EventLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Diário só de acrescentar com todos os eventos dos jogos (criado, jogador entrou/saiu, pergunta enviada,
+// resposta, pontos, fim), para repor resultados depois (ver JournalReplay).
+// Os registos vão para segmentos mapeados em memória (journal-000001.seg, ...): acrescentar é copiar
+// bytes para o mapa, com um lock curto. Uma thread de fundo faz force() do que foi escrito a cada
+// iskahoot.journal.flushMs e deixa o segmento seguinte já criado e mapeado; quando o atual enche, quem
+// acrescenta só troca de mapa e o force() do antigo fica para essa thread. A thread de uma resposta nunca
+// espera pelo disco (só se o segmento seguinte ainda não estiver pronto, até MAX_ROTATION_WAIT_MILLIS).
+//
+// Segmento: MAGIC, VERSION e depois registos [int tamanho][byte tipo][long epochMillis][campos].
+// O tamanho conta tipo, tempo e campos, e é escrito por último: um registo a meio fica com tamanho 0,
+// que é também o que se lê no resto (a zeros) do segmento.
+class GameJournal {
+    static final int MAGIC = 0x494B4A31;    // "IKJ1"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER = 8;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    // Tipos de registo
+    static final byte GAME_CREATED = 1;     // jogo, quiz, equipas, jogadores por equipa, perguntas
+    static final byte PLAYER_JOINED = 2;    // jogo, lugar, equipa, username
+    static final byte PLAYER_LEFT = 3;      // jogo, lugar
+    static final byte QUESTION_SENT = 4;    // jogo, pergunta, ronda de equipa, jogadores
+    static final byte ANSWER = 5;           // jogo, lugar, pergunta, opção, certa, nanos desde o envio
+    static final byte TEAM_POINTS = 6;      // jogo, equipa, pontos, total
+    static final byte PLAYER_POINTS = 7;    // jogo, lugar, pontos, total
+    static final byte GAME_OVER = 8;        // jogo, nº de equipas, pontos de cada equipa
+
+    static final long MAX_ROTATION_WAIT_MILLIS = 1000;
+
+    private static final GameJournal DISABLED = new GameJournal();
+
+    private final File dir;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Sinalizada quando a thread de fundo deixa o segmento seguinte pronto (ou desliga o diário)
+    private final Condition nextReady = lock.newCondition();
+    // Segmento atual (com lock)
+    private int segmentNumber;
+    private MappedByteBuffer segment;
+    private int flushedUpTo;
+    // Segmento já mapeado para quando o atual encher (com lock; só a thread de fundo o cria)
+    private MappedByteBuffer nextSegment;
+    // Segmento que acabou de encher: a thread de fundo faz o force() do que falta (com lock)
+    private MappedByteBuffer retired;
+    private int retiredFrom;
+    private int retiredTo;
+    private long dropped;
+    private final Thread flusher;
+
+    // Diário desligado: todos os métodos retornam logo
+    private GameJournal() {
+        this.dir = null;
+        this.segmentSize = 0;
+        this.flusher = null;
+    }
+
+    private GameJournal(File dir, int segmentSize, long flushMillis) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar a pasta do diário: " + dir);
+        }
+        // Nunca se acrescenta a segmentos antigos: cada arranque começa no número seguinte
+        this.segmentNumber = lastSegmentNumber(dir);
+        this.segment = mapSegment(++segmentNumber);
+
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        flusher = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                prepareNextSegment();
+                // Acordada mais cedo quando um segmento enche
+                LockSupport.parkNanos(this, flushNanos);
+                flush();
+            }
+        }, "journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "journal-shutdown"));
+    }
+
+    static GameJournal disabled() {
+        return DISABLED;
+    }
+
+    // dir == null: diário desligado
+    static GameJournal open(String dir, int segmentSize, long flushMillis) throws IOException {
+        if (dir == null) return DISABLED;
+        return new GameJournal(new File(dir), segmentSize, flushMillis);
+    }
+
+    boolean isEnabled() {
+        return dir != null;
+    }
+
+    // --- Eventos ---
+
+    void gameCreated(String gameId, String quiz, int numTeams, int playersPerTeam, int questions) {
+        if (dir == null) return;
+        Record r = new Record(GAME_CREATED, gameId);
+        r.writeUTF(quiz);
+        r.writeInt(numTeams);
+        r.writeInt(playersPerTeam);
+        r.writeInt(questions);
+        append(r);
+    }
+
+    void playerJoined(String gameId, int slot, int teamId, String username) {
+        if (dir == null) return;
+        Record r = new Record(PLAYER_JOINED, gameId);
+        r.writeInt(slot);
+        r.writeInt(teamId);
+        r.writeUTF(username != null ? username : "");
+        append(r);
+    }
+
+    void playerLeft(String gameId, int slot) {
+        if (dir == null) return;
+        Record r = new Record(PLAYER_LEFT, gameId);
+        r.writeInt(slot);
+        append(r);
+    }
+
+    void questionSent(String gameId, int questionIndex, boolean teamRound, int players) {
+        if (dir == null) return;
+        Record r = new Record(QUESTION_SENT, gameId);
+        r.writeInt(questionIndex);
+        r.writeBoolean(teamRound);
+        r.writeInt(players);
+        append(r);
+    }
+
+    void answer(String gameId, int slot, int questionIndex, int option, boolean correct, long sinceQuestionNanos) {
+        if (dir == null) return;
+        Record r = new Record(ANSWER, gameId);
+        r.writeInt(slot);
+        r.writeInt(questionIndex);
+        r.writeInt(option);
+        r.writeBoolean(correct);
+        r.writeLong(sinceQuestionNanos);
+        append(r);
+    }
+
+    void teamPoints(String gameId, int teamId, int points, int total) {
+        if (dir == null) return;
+        Record r = new Record(TEAM_POINTS, gameId);
+        r.writeInt(teamId);
+        r.writeInt(points);
+        r.writeInt(total);
+        append(r);
+    }
+
+    void playerPoints(String gameId, int slot, int points, int total) {
+        if (dir == null) return;
+        Record r = new Record(PLAYER_POINTS, gameId);
+        r.writeInt(slot);
+        r.writeInt(points);
+        r.writeInt(total);
+        append(r);
+    }
+
+    void gameOver(String gameId, int[] scores) {
+        if (dir == null) return;
+        Record r = new Record(GAME_OVER, gameId);
+        r.writeInt(scores.length);
+        for (int score : scores) {
+            r.writeInt(score);
+        }
+        append(r);
+    }
+
+    // Registo codificado fora do lock, em big-endian (como o ByteBuffer que o lê).
+    // Os 4 primeiros bytes ficam para o tamanho, escrito em append.
+    private static final class Record {
+        private byte[] buf = new byte[64];
+        private int len = 4;
+
+        Record(byte type, String gameId) {
+            writeByte(type);
+            writeLong(System.currentTimeMillis());
+            writeUTF(gameId);
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+            }
+        }
+
+        void writeByte(int v) {
+            ensure(1);
+            buf[len++] = (byte) v;
+        }
+
+        void writeBoolean(boolean v) {
+            writeByte(v ? 1 : 0);
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[len++] = (byte) (v >>> shift);
+            }
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        // Tamanho (short) + UTF-8
+        void writeUTF(String s) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            int n = Math.min(utf8.length, Short.MAX_VALUE);
+            ensure(2 + n);
+            buf[len++] = (byte) (n >>> 8);
+            buf[len++] = (byte) n;
+            System.arraycopy(utf8, 0, buf, len, n);
+            len += n;
+        }
+    }
+
+    // --- Escrita nos segmentos ---
+
+    private void append(Record record) {
+        lock.lock();
+        try {
+            if (segment == null || record.len > segmentSize - SEGMENT_HEADER) {
+                dropped++;
+                return;
+            }
+            if (segment.remaining() < record.len && !rotate(record.len)) {
+                dropped++;
+                return;
+            }
+            // Conteúdo primeiro, tamanho no fim (ver comentário da classe)
+            int start = segment.position();
+            segment.position(start + 4);
+            segment.put(record.buf, 4, record.len - 4);
+            segment.putInt(start, record.len - 4);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dropped++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Passa para o segmento seguinte, já mapeado pela thread de fundo. O force() do que falta no atual
+    // fica para essa thread. Chamar com lock; devolve false se o diário foi desligado ou o seguinte não
+    // ficou pronto a tempo.
+    private boolean rotate(int needed) throws InterruptedException {
+        long waitNanos = TimeUnit.MILLISECONDS.toNanos(MAX_ROTATION_WAIT_MILLIS);
+        while (nextSegment == null) {
+            if (segment == null || waitNanos <= 0) return false;
+            LockSupport.unpark(flusher);
+            waitNanos = nextReady.awaitNanos(waitNanos);
+            // Outra thread pode ter trocado de segmento enquanto esta esperava
+            if (segment != null && segment.remaining() >= needed) return true;
+        }
+        // Só há um segmento seguinte de cada vez, e a thread de fundo apanha o antigo antes de criar outro
+        retired = segment;
+        retiredFrom = flushedUpTo;
+        retiredTo = segment.position();
+        segment = nextSegment;
+        nextSegment = null;
+        flushedUpTo = 0;
+        LockSupport.unpark(flusher);
+        return true;
+    }
+
+    // Thread de fundo: cria e mapeia o segmento seguinte (fora do lock) se ainda não houver um pronto
+    private void prepareNextSegment() {
+        int number;
+        lock.lock();
+        try {
+            if (segment == null || nextSegment != null) return;
+            number = ++segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+
+        MappedByteBuffer next = null;
+        try {
+            next = mapSegment(number);
+        } catch (IOException e) {
+            // Sem disco não se pára o jogo: o diário fica desligado e os registos seguintes são contados
+            EventLog.error("Diário de jogos desligado: {}", e.getMessage());
+        }
+        lock.lock();
+        try {
+            if (next == null) {
+                segment = null;
+            } else {
+                nextSegment = next;
+            }
+            nextReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int number) throws IOException {
+        File file = new File(dir, segmentName(number));
+        MappedByteBuffer map;
+        // O mapa continua válido depois de fechar o ficheiro
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentSize);
+            map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        map.putInt(MAGIC);
+        map.putInt(VERSION);
+        return map;
+    }
+
+    // Força para o disco o que foi escrito desde o último flush (incluindo o fim do segmento que encheu)
+    void flush() {
+        MappedByteBuffer oldSegment, toFlush;
+        int oldFrom, oldTo, from, to;
+        lock.lock();
+        try {
+            oldSegment = retired;
+            oldFrom = retiredFrom;
+            oldTo = retiredTo;
+            retired = null;
+            toFlush = segment;
+            from = flushedUpTo;
+            to = segment != null ? segment.position() : 0;
+            flushedUpTo = to;
+        } finally {
+            lock.unlock();
+        }
+        // Fora do lock: quem acrescenta continua enquanto o disco trabalha
+        if (oldSegment != null && oldTo > oldFrom) {
+            oldSegment.force(oldFrom, oldTo - oldFrom);
+        }
+        if (toFlush != null && to > from) {
+            toFlush.force(from, to - from);
+        }
+    }
+
+    long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String segmentName(int number) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    // Segmentos existentes por ordem (para o JournalReplay)
+    static File[] segments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static int lastSegmentNumber(File dir) {
+        int last = 0;
+        for (File f : segments(dir)) {
+            String name = f.getName();
+            try {
+                last = Math.max(last, Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+                // Ficheiro com nome estranho: ignorado
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,364 @@
+package Server;
+
+import common.Msg;
+import common.ScoreUpdate;
+import model.Question;
+import utils.EventLog;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Um jogo como máquina de estados: cada fase agenda a seguinte no scheduler partilhado,
+// em vez de ocupar uma thread com sleep()/await() durante o jogo todo.
+//   COUNTDOWN -> QUESTION -> COLLECTING -> SCOREBOARD -> QUESTION ... -> FINISHED
+class GameRunner {
+    static final int TEMPO_ESPERA = 3000;     // 3s
+    // A partir de quantos lugares a pontuação das equipas em falta é dividida pelo fork-join
+    static final int PARALLEL_SCORING_SLOTS = 4096;
+
+    enum Phase { LOBBY, COUNTDOWN, QUESTION, COLLECTING, SCOREBOARD, FINISHED }
+
+    private final Server server;
+    private final GameInfo game;
+    private final ScheduledExecutorService scheduler;
+    private final List<Question> questions;
+
+    // Um só latch para todas as rondas individuais do jogo (bónus 2x para a primeira resposta)
+    private final ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 10000, 0, this::onLatchZero);
+    // E uma só barreira para as rondas de equipa
+    private final TeamBarrier barrier;
+    // Estado da pontuação de cada equipa na ronda atual: por pontuar, a pontuar ou pontuada
+    private static final int TEAM_PENDING = 0, TEAM_SCORING = 1, TEAM_SCORED = 2;
+    private final AtomicIntegerArray teamScoring;
+    // Equipas por pontuar na ronda de equipa, mais uma parte do finishRound: quem chega a zero envia o placar.
+    // Assim ninguém fica à espera de outra thread que esteja a pontuar uma equipa.
+    private final AtomicInteger scoringPending = new AtomicInteger();
+    // Respostas da ronda (reutilizado em todas as rondas)
+    private final RoundAnswers answers;
+
+    private volatile Phase phase = Phase.LOBBY;
+    private int questionIndex = 0;
+    private ScheduledFuture<?> roundTimeout;
+    // Placar que os clientes já receberam (o próximo UPDATE_SCORE só leva as equipas que mudaram)
+    private int[] sentScores = new int[0];
+    private int scoreSequence = 0;
+    // Ronda a decorrer: o latch e a barreira avisam com o número da ronda, para ignorar rondas já fechadas
+    private volatile int latchRound = -1;
+    private volatile int barrierRound = -1;
+    private volatile AtomicBoolean roundClosed;
+    private volatile Question roundQuestion;
+    private volatile long roundStart;
+    private volatile int roundPlayers;
+    private volatile boolean roundTimedOut;
+    // Eventos JFR abertos (o jogo e a ronda atual)
+    private GameEvents.GameEnd gameEvent;
+    private volatile GameEvents.QuestionRound roundEvent;
+
+    GameRunner(Server server, GameInfo game, ScheduledExecutorService scheduler) {
+        this.server = server;
+        this.game = game;
+        this.scheduler = scheduler;
+        this.questions = game.gameState.getQuiz().getQuestions();
+        int numTeams = game.gameState.getNumTeams();
+        this.barrier = new TeamBarrier(numTeams, this::onTeamCompleted, this::onBarrierTrip);
+        this.teamScoring = new AtomicIntegerArray(numTeams);
+        this.answers = new RoundAnswers(numTeams, game.playersPerTeamExpected);
+    }
+
+    Phase getPhase() {
+        return phase;
+    }
+
+    void start() {
+        phase = Phase.COUNTDOWN;
+        GameEvents.GameStart started = new GameEvents.GameStart();
+        if (started.shouldCommit()) {
+            started.gameId = game.gameId;
+            started.quiz = game.gameState.getQuiz().getName();
+            started.teams = game.numTeamsExpected;
+            started.players = game.getTotalPlayersNeeded();
+            started.questions = questions.size();
+            started.commit();
+        }
+        gameEvent = new GameEvents.GameEnd();
+        gameEvent.begin();
+        EventLog.info("O jogo {} vai começar em 3 segundos...", game.gameId);
+        schedule(this::startQuestion, TEMPO_ESPERA);
+    }
+
+    // Uma exceção numa fase não pode desaparecer em silêncio dentro do scheduler
+    private ScheduledFuture<?> schedule(Runnable step, long delayMillis) {
+        return scheduler.schedule(() -> {
+            try {
+                step.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void startQuestion() {
+        phase = Phase.QUESTION;
+        Question q = questions.get(questionIndex);
+        boolean teamRound = (questionIndex % 2 != 0);
+        game.isTeamRound = teamRound;
+
+        EventLog.info("\n--- PERGUNTA {} ({}) para o JOGO {} ---", questionIndex + 1, teamRound ? "EQUIPA" : "INDIVIDUAL", game.gameId);
+
+        // Fecha a ronda uma só vez: ou chega a última resposta ou acaba o tempo
+        AtomicBoolean closed = new AtomicBoolean(false);
+        roundClosed = closed;
+        roundQuestion = q;
+        int timeout;
+        int players;
+
+        game.clientsLock.lock();
+        try {
+            players = game.clients.size();
+            EventLog.info("Jogadores ativos: {} jogadores.", players);
+            answers.reset(game.slots);
+            game.currentAnswers = answers;
+
+            if (teamRound) {
+                int[] membersPerTeam = game.getTeamSizes();
+                for (int t = 0; t < membersPerTeam.length; t++) {
+                    teamScoring.set(t, TEAM_PENDING);
+                }
+                scoringPending.set(membersPerTeam.length + 1);
+                game.currentLatch = null;
+                barrierRound = barrier.reset(membersPerTeam);
+                game.currentBarrier = barrier;
+                timeout = TeamBarrier.TEMPO_RESPOSTA;
+            } else {
+                game.currentBarrier = null;
+                latchRound = latch.reset(players);
+                game.currentLatch = latch;
+                timeout = latch.getWaitPeriod();
+            }
+        } finally {
+            game.clientsLock.unlock();
+        }
+
+        // Enviar a pergunta a todos (já codificada, incluindo a variante de equipa)
+        roundPlayers = players;
+        GameEvents.QuestionRound event = new GameEvents.QuestionRound();
+        event.begin();
+        roundEvent = event;
+        roundStart = System.nanoTime();
+        game.journal.questionSent(game.gameId, questionIndex, teamRound, players);
+        // Aberta antes do envio: um cliente rápido pode responder antes de o broadcast acabar
+        game.openRound = GameInfo.round(questionIndex, teamRound ? barrierRound : latchRound);
+        server.broadcast(game, game.quiz.newQuestion(questionIndex, teamRound));
+
+        phase = Phase.COLLECTING;
+        EventLog.info("Servidor à espera {} para {}...", teamRound ? "na Barreira (Modo Equipa)" : "no Latch (Modo Individual)", game.gameId);
+        roundTimeout = schedule(() -> closeRound(closed, true), timeout);
+        if (players == 0) {
+            // Ninguém vai responder: tal como o await() com contador a 0, a ronda acaba logo
+            closeRound(closed, false);
+        }
+    }
+
+    private void onLatchZero(int round) {
+        if (round == latchRound) {
+            closeRound(roundClosed, false);
+        }
+    }
+
+    // A equipa inteira respondeu: pontua-a já, na thread da última resposta (é só percorrer a equipa)
+    private void onTeamCompleted(int round, int teamId) {
+        if (round == barrierRound) {
+            scoreTeam(roundQuestion, teamId);
+        }
+    }
+
+    private void onBarrierTrip(int round) {
+        if (round == barrierRound) {
+            closeRound(roundClosed, false);
+        }
+    }
+
+    // Chamado pela thread que entregou a última resposta ou pelo timeout (timedOut)
+    private void closeRound(AtomicBoolean closed, boolean timedOut) {
+        if (!closed.compareAndSet(false, true)) return;
+        // A partir daqui as respostas desta ronda (incluindo as que ainda estão na caixa de entrada) são descartadas
+        game.openRound = GameInfo.NO_ROUND;
+        roundEvent.end();
+        roundTimedOut = timedOut;
+        ServerMetrics metrics = server.getMetrics();
+        (game.isTeamRound ? metrics.barrierWait : metrics.latchWait).recordSince(roundStart);
+        // A pontuação corre no scheduler, nunca na thread da ligação que respondeu
+        schedule(this::finishRound, 0);
+    }
+
+    private void finishRound() {
+        if (roundTimeout != null) {
+            roundTimeout.cancel(false);
+        }
+        Question q = questions.get(questionIndex);
+        commitRoundEvents(q);
+
+        if (game.isTeamRound) {
+            // Equipas que não acabaram a tempo (as outras já foram pontuadas)
+            if (game.slots.length() >= PARALLEL_SCORING_SLOTS) {
+                ForkJoinPool.commonPool().invoke(new TeamScoring(q, 0, barrier.getNumTeams()));
+            } else {
+                for (int t = 0; t < barrier.getNumTeams(); t++) {
+                    scoreTeam(q, t);
+                }
+            }
+            EventLog.info("Barreira libertada (ou tempo esgotou) para {}.", game.gameId);
+            // Se outra thread ainda está a pontuar uma equipa, é ela que envia o placar quando acabar
+            if (scoringPending.decrementAndGet() == 0) {
+                sendRoundScoreboard();
+            }
+        } else {
+            EventLog.info("Latch libertado (ou tempo esgotou) para {}.", game.gameId);
+            sendRoundScoreboard();
+        }
+    }
+
+    // Todas as equipas pontuadas: passa à pergunta seguinte (ou ao fim) e envia o placar intermédio
+    private void sendRoundScoreboard() {
+        game.gameState.nextQuestion();
+        phase = Phase.SCOREBOARD;
+
+        // Enviar Placar Intermédio
+        if (questionIndex < questions.size() - 1) {
+            EventLog.info("A enviar placar intermédio para {}...", game.gameId);
+            int[] scores = game.gameState.snapshotTeamScores();
+            ScoreUpdate update = ScoreUpdate.delta(++scoreSequence, questionIndex + 1, questions.size(), sentScores, scores);
+            sentScores = scores;
+            server.sendScoreboard(game, Msg.Type.UPDATE_SCORE, update, scores);
+            questionIndex++;
+            schedule(this::startQuestion, TEMPO_ESPERA);
+        } else {
+            schedule(this::finishGame, TEMPO_ESPERA);
+        }
+    }
+
+    // Eventos JFR da ronda que acabou (contar as respostas percorre os bitsets, por isso só com gravação)
+    private void commitRoundEvents(Question q) {
+        GameEvents.QuestionRound event = roundEvent;
+        if (event.shouldCommit()) {
+            event.gameId = game.gameId;
+            event.question = questionIndex + 1;
+            event.mode = game.isTeamRound ? "equipa" : "individual";
+            event.players = roundPlayers;
+            event.answers = answers.answeredCount();
+            event.lastAnswer = answers.lastArrivalNanos();
+            event.timedOut = roundTimedOut;
+            event.commit();
+        }
+        if (roundTimedOut) {
+            GameEvents.RoundTimeout timeoutEvent = new GameEvents.RoundTimeout();
+            if (timeoutEvent.shouldCommit()) {
+                timeoutEvent.gameId = game.gameId;
+                timeoutEvent.question = questionIndex + 1;
+                timeoutEvent.waitedOn = game.isTeamRound ? "barreira" : "latch";
+                timeoutEvent.timeout = game.isTeamRound ? TeamBarrier.TEMPO_RESPOSTA : latch.getWaitPeriod();
+                timeoutEvent.players = roundPlayers;
+                timeoutEvent.answers = answers.answeredCount();
+                timeoutEvent.commit();
+            }
+        }
+    }
+
+    // Pontua uma equipa uma só vez por ronda. Se outra thread já a está a pontuar, retorna logo: o placar
+    // intermédio só sai quando scoringPending chega a zero, ou seja, com os pontos de todas as equipas.
+    private void scoreTeam(Question q, int teamId) {
+        if (!teamScoring.compareAndSet(teamId, TEAM_PENDING, TEAM_SCORING)) {
+            return;
+        }
+
+        try {
+            // Calculado a partir dos bitsets da ronda (só os lugares desta equipa)
+            int outcome = answers.teamOutcome(teamId);
+
+            int basePoints = q.getPoints();
+            int pointsToAdd = 0;
+            if (outcome == 2) {
+                pointsToAdd = basePoints * 2;
+                EventLog.info("Jogo {} | Equipa {}: TODOS acertaram! (Pontos x2: {})", game.gameId, teamId + 1, pointsToAdd);
+            } else if (outcome == 1) {
+                pointsToAdd = basePoints;
+                EventLog.info("Jogo {} | Equipa {}: Acertaram parcialmente. (Pontos normais: {})", game.gameId, teamId + 1, pointsToAdd);
+            } else {
+                EventLog.info("Jogo {} | Equipa {}: Ninguém acertou.", game.gameId, teamId + 1);
+            }
+
+            if (pointsToAdd > 0) {
+                game.addTeamPoints(teamId, pointsToAdd);
+            }
+        } finally {
+            teamScoring.set(teamId, TEAM_SCORED);
+            // Última equipa depois do finishRound: o placar sai no scheduler, não na thread desta resposta
+            if (scoringPending.decrementAndGet() == 0) {
+                schedule(this::sendRoundScoreboard, 0);
+            }
+        }
+    }
+
+    // Divide as equipas ao meio até cada tarefa ter poucos lugares para pontuar (nunca é serializada)
+    @SuppressWarnings("serial")
+    private class TeamScoring extends RecursiveAction {
+        private final Question q;
+        private final int fromTeam, toTeam;
+
+        TeamScoring(Question q, int fromTeam, int toTeam) {
+            this.q = q;
+            this.fromTeam = fromTeam;
+            this.toTeam = toTeam;
+        }
+
+        @Override
+        protected void compute() {
+            if (toTeam - fromTeam <= 1 || (toTeam - fromTeam) * game.playersPerTeamExpected <= PARALLEL_SCORING_SLOTS / 4) {
+                for (int t = fromTeam; t < toTeam; t++) {
+                    scoreTeam(q, t);
+                }
+                return;
+            }
+            int mid = (fromTeam + toTeam) >>> 1;
+            invokeAll(new TeamScoring(q, fromTeam, mid), new TeamScoring(q, mid, toTeam));
+        }
+    }
+
+    private void finishGame() {
+        phase = Phase.FINISHED;
+        // Fim do Jogo
+        EventLog.info("JOGO {} TERMINADO.", game.gameId);
+
+        // Envia mensagem final
+        // Placar final completo: não depende de o cliente ter recebido os deltas anteriores
+        int[] scores = game.gameState.snapshotTeamScores();
+        ScoreUpdate update = ScoreUpdate.full(++scoreSequence, questions.size(), questions.size(), scores);
+        server.sendScoreboard(game, Msg.Type.GAME_OVER, update, scores);
+        game.journal.gameOver(game.gameId, scores);
+
+        gameEvent.end();
+        if (gameEvent.shouldCommit()) {
+            int winner = 0;
+            for (int t = 1; t < scores.length; t++) {
+                if (scores[t] > scores[winner]) winner = t;
+            }
+            gameEvent.gameId = game.gameId;
+            gameEvent.players = game.leaderboard.size();
+            gameEvent.questions = questions.size();
+            gameEvent.winningTeam = winner + 1;
+            gameEvent.winningScore = scores.length > 0 ? scores[winner] : 0;
+            gameEvent.commit();
+        }
+
+        // Fechar conexões e remover o jogo
+        server.closeAllClientConnections(game.gameId);
+        server.removeGame(game);
+    }
+}
@@ -0,0 +1,144 @@
+package Server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Classificação de todo o servidor (equipas e jogadores de todos os jogos ativos), atualizada a cada ponto.
+// Cada equipa/jogador tem uma só entrada numa ConcurrentSkipListSet ordenada por pontos; o top-K é ler
+// os primeiros K, sem locks e sem percorrer jogos ou clientes.
+// Cada jogo guarda as suas entradas atuais num Board (arrays atómicos por lugar e por equipa). Como os
+// pontos só sobem, uma atualização só substitui a entrada se tiver mais pontos, por isso atualizações
+// concorrentes da mesma equipa nunca deixam entradas antigas no conjunto. Jogadores que saíram e jogos
+// terminados ficam marcados com entradas de pontos máximos (LEFT, REMOVED), que nenhuma atualização
+// atrasada consegue substituir.
+class GlobalLeaderboard {
+
+    static final class Entry {
+        final String gameId;
+        final int index;        // lugar (jogador) ou equipa
+        final String name;      // username (null nas equipas)
+        final int score;
+
+        Entry(String gameId, int index, String name, int score) {
+            this.gameId = gameId;
+            this.index = index;
+            this.name = name;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return (name != null ? name : "Equipa " + (index + 1)) + " (jogo " + gameId + "): " + score + " pontos";
+        }
+    }
+
+    // Mais pontos primeiro; em empate, por jogo e lugar
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        if (a.score != b.score) return Integer.compare(b.score, a.score);
+        int c = a.gameId.compareTo(b.gameId);
+        return c != 0 ? c : Integer.compare(a.index, b.index);
+    };
+
+    // Marca um jogo que já saiu: atualizações atrasadas não voltam a entrar
+    private static final Entry REMOVED = new Entry("", -1, null, Integer.MAX_VALUE);
+    // Marca um lugar cujo jogador saiu, até outro jogador se sentar nele
+    private static final Entry LEFT = new Entry("", -1, null, Integer.MAX_VALUE);
+
+    // Entradas de um jogo no conjunto global
+    static final class Board {
+        final String gameId;
+        final AtomicReferenceArray<Entry> players;
+        final AtomicReferenceArray<Entry> teams;
+
+        Board(String gameId, int numSlots, int numTeams) {
+            this.gameId = gameId;
+            this.players = new AtomicReferenceArray<>(numSlots);
+            this.teams = new AtomicReferenceArray<>(numTeams);
+        }
+    }
+
+    private final ConcurrentSkipListSet<Entry> players = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentSkipListSet<Entry> teams = new ConcurrentSkipListSet<>(ORDER);
+
+    void updatePlayer(Board board, int slot, String name, int score) {
+        update(players, board.players, new Entry(board.gameId, slot, name, score));
+    }
+
+    void updateTeam(Board board, int teamId, int score) {
+        update(teams, board.teams, new Entry(board.gameId, teamId, null, score));
+    }
+
+    // Jogador sentou-se num lugar (pode ter sido de alguém que saiu)
+    void playerJoined(Board board, int slot) {
+        board.players.compareAndSet(slot, LEFT, null);
+    }
+
+    // Jogador saiu do jogo. Uma atualização dele ainda a meio vê LEFT e tira a sua própria entrada.
+    void removePlayer(Board board, int slot) {
+        while (true) {
+            Entry old = board.players.get(slot);
+            // Jogo já terminado: REMOVED fica
+            if (old == REMOVED || old == LEFT) return;
+            if (board.players.compareAndSet(slot, old, LEFT)) {
+                if (old != null) {
+                    players.remove(old);
+                }
+                return;
+            }
+        }
+    }
+
+    // Jogo terminado: tira as entradas todas (só as deste jogo)
+    void removeGame(Board board) {
+        retire(players, board.players);
+        retire(teams, board.teams);
+    }
+
+    List<Entry> topPlayers(int k) {
+        return top(players, k);
+    }
+
+    List<Entry> topTeams(int k) {
+        return top(teams, k);
+    }
+
+    private static void update(ConcurrentSkipListSet<Entry> set, AtomicReferenceArray<Entry> current, Entry entry) {
+        // Entra primeiro no conjunto; depois quem perde (a entrada antiga ou esta) sai
+        if (!set.add(entry)) return;
+        while (true) {
+            Entry old = current.get(entry.index);
+            if (old != null && old.score >= entry.score) {
+                set.remove(entry);
+                return;
+            }
+            if (current.compareAndSet(entry.index, old, entry)) {
+                if (old != null) {
+                    set.remove(old);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void retire(ConcurrentSkipListSet<Entry> set, AtomicReferenceArray<Entry> current) {
+        for (int i = 0; i < current.length(); i++) {
+            Entry old = current.getAndSet(i, REMOVED);
+            if (old != null && old != REMOVED && old != LEFT) {
+                set.remove(old);
+            }
+        }
+    }
+
+    private static List<Entry> top(ConcurrentSkipListSet<Entry> set, int k) {
+        List<Entry> result = new ArrayList<>(k);
+        Iterator<Entry> it = set.iterator();
+        while (result.size() < k && it.hasNext()) {
+            result.add(it.next());
+        }
+        return result;
+    }
+}
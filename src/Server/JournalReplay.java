@@ -0,0 +1,249 @@
+package Server;
+
+import model.GameState;
+import model.Quiz;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lê o diário de jogos (GameJournal) e volta a calcular os pontos de cada jogo a partir dos registos
+// de pontos, num GameState novo; no fim compara com o placar final que o servidor registou.
+// Serve para disputas ("o placar estava errado?") e para análise das respostas.
+//
+// Uso: java -cp ... Server.JournalReplay [pasta do diário] [código do jogo]
+public class JournalReplay {
+    private static final SimpleDateFormat TIME = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final int TOP_PLAYERS = 10;
+
+    // Um jogo reconstruído (os códigos são reutilizados, por isso cada GAME_CREATED começa um novo)
+    private static final class ReplayedGame {
+        final String gameId;
+        final long createdAt;
+        final String quiz;
+        final int numTeams;
+        final int playersPerTeam;
+        final int numQuestions;
+        final GameState state;
+        final String[] usernames;
+        final int[] playerScores;
+        int questionsSent;
+        int answers;
+        int correctAnswers;
+        // Maior total registado com os pontos de cada equipa. Respostas em paralelo podem entrar no diário
+        // fora da ordem dos totais, por isso só o maior tem de bater com a soma no fim.
+        final int[] recordedTotals;
+        int[] recordedFinal;     // placar do GAME_OVER (null se o jogo não acabou no diário)
+        long finishedAt;
+
+        ReplayedGame(String gameId, long createdAt, String quiz, int numTeams, int playersPerTeam, int numQuestions) {
+            this.gameId = gameId;
+            this.createdAt = createdAt;
+            this.quiz = quiz;
+            this.numTeams = numTeams;
+            this.playersPerTeam = playersPerTeam;
+            this.numQuestions = numQuestions;
+            this.state = new GameState(new Quiz(quiz, Collections.emptyList()), numTeams);
+            this.usernames = new String[numTeams * playersPerTeam];
+            this.playerScores = new int[numTeams * playersPerTeam];
+            this.recordedTotals = new int[numTeams];
+        }
+    }
+
+    private final String filter;
+    private final Map<String, ReplayedGame> open = new HashMap<>();
+    private final List<ReplayedGame> finished = new ArrayList<>();
+    private int truncatedSegments = 0;
+
+    JournalReplay(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : ServerConfig.DEFAULT_JOURNAL_DIR);
+        String filter = args.length > 1 ? args[1].toUpperCase() : null;
+
+        File[] segments = GameJournal.segments(dir);
+        if (segments.length == 0) {
+            System.out.println("Nenhum segmento do diário em " + dir.getAbsolutePath());
+            return;
+        }
+
+        JournalReplay replay = new JournalReplay(filter);
+        for (File segment : segments) {
+            replay.readSegment(segment);
+        }
+        replay.report();
+    }
+
+    private void readSegment(File file) throws IOException {
+        MappedByteBuffer buf;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if (buf.remaining() < GameJournal.SEGMENT_HEADER || buf.getInt() != GameJournal.MAGIC) {
+            System.out.println("Aviso: " + file.getName() + " não é um segmento do diário (ignorado).");
+            return;
+        }
+        int version = buf.getInt();
+        if (version != GameJournal.VERSION) {
+            System.out.println("Aviso: " + file.getName() + " tem a versão " + version + " (ignorado).");
+            return;
+        }
+
+        // Tamanho 0: fim dos registos do segmento (ou registo que não chegou a ser escrito)
+        while (buf.remaining() >= 4) {
+            int length = buf.getInt();
+            if (length <= 0) break;
+            if (length > buf.remaining()) {
+                truncatedSegments++;
+                break;
+            }
+            int next = buf.position() + length;
+            apply(buf);
+            buf.position(next);
+        }
+    }
+
+    private void apply(ByteBuffer r) {
+        byte type = r.get();
+        long time = r.getLong();
+        String gameId = readUTF(r);
+        if (filter != null && !filter.equals(gameId)) return;
+
+        if (type == GameJournal.GAME_CREATED) {
+            String quiz = readUTF(r);
+            ReplayedGame previous = open.put(gameId, new ReplayedGame(gameId, time, quiz, r.getInt(), r.getInt(), r.getInt()));
+            if (previous != null) {
+                finished.add(previous);     // o servidor parou antes do fim desse jogo
+            }
+            return;
+        }
+
+        ReplayedGame game = open.get(gameId);
+        if (game == null) return;           // jogo criado num segmento que já não existe
+
+        switch (type) {
+            case GameJournal.PLAYER_JOINED: {
+                int slot = r.getInt();
+                r.getInt();                 // equipa (= slot / jogadores por equipa)
+                game.usernames[slot] = readUTF(r);
+                break;
+            }
+            case GameJournal.QUESTION_SENT:
+                game.questionsSent++;
+                break;
+            case GameJournal.ANSWER: {
+                r.getInt();                 // lugar
+                r.getInt();                 // pergunta
+                r.getInt();                 // opção
+                game.answers++;
+                if (r.get() != 0) game.correctAnswers++;
+                break;
+            }
+            case GameJournal.TEAM_POINTS: {
+                int teamId = r.getInt();
+                int points = r.getInt();
+                game.state.addPointsToTeam(teamId, points);
+                game.recordedTotals[teamId] = Math.max(game.recordedTotals[teamId], r.getInt());
+                break;
+            }
+            case GameJournal.PLAYER_POINTS: {
+                int slot = r.getInt();
+                game.playerScores[slot] += r.getInt();
+                break;
+            }
+            case GameJournal.GAME_OVER: {
+                int[] scores = new int[r.getInt()];
+                for (int t = 0; t < scores.length; t++) {
+                    scores[t] = r.getInt();
+                }
+                game.recordedFinal = scores;
+                game.finishedAt = time;
+                finished.add(open.remove(gameId));
+                break;
+            }
+            default:
+                // PLAYER_LEFT e tipos desconhecidos (diário mais recente): nada a repor
+        }
+    }
+
+    private static String readUTF(ByteBuffer r) {
+        byte[] utf8 = new byte[r.getShort() & 0xFFFF];
+        r.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void report() {
+        List<ReplayedGame> all = new ArrayList<>(finished);
+        all.addAll(open.values());
+        all.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        if (all.isEmpty()) {
+            System.out.println(filter != null ? "Jogo " + filter + " não encontrado no diário." : "O diário não tem jogos.");
+            return;
+        }
+
+        int mismatched = 0;
+        for (ReplayedGame game : all) {
+            if (!print(game)) mismatched++;
+        }
+        System.out.println();
+        System.out.println(all.size() + " jogos no diário, " + mismatched + " com placar diferente do registado.");
+        if (truncatedSegments > 0) {
+            System.out.println("Aviso: " + truncatedSegments + " segmentos acabam com um registo incompleto.");
+        }
+    }
+
+    // Devolve false se o placar reconstruído não bate com o registado
+    private boolean print(ReplayedGame game) {
+        System.out.println();
+        System.out.printf("=== JOGO %s (Quiz: %s) criado %s: %d equipas x %d jogadores, %d perguntas ===\n",
+                game.gameId, game.quiz, TIME.format(new Date(game.createdAt)), game.numTeams, game.playersPerTeam, game.numQuestions);
+        System.out.printf("Perguntas enviadas: %d | Respostas: %d (%d certas)\n", game.questionsSent, game.answers, game.correctAnswers);
+
+        int[] scores = game.state.snapshotTeamScores();
+        for (int t = 0; t < scores.length; t++) {
+            System.out.println("Equipa " + (t + 1) + ": " + scores[t] + " pontos");
+        }
+
+        Integer[] order = new Integer[game.playerScores.length];
+        for (int s = 0; s < order.length; s++) order[s] = s;
+        Arrays.sort(order, (a, b) -> game.playerScores[b] != game.playerScores[a]
+                ? Integer.compare(game.playerScores[b], game.playerScores[a]) : Integer.compare(a, b));
+        StringBuilder top = new StringBuilder("Melhores jogadores:");
+        int shown = 0;
+        for (int i = 0; i < order.length && shown < TOP_PLAYERS; i++) {
+            int s = order[i];
+            if (game.usernames[s] == null) continue;
+            shown++;
+            top.append(' ').append(shown).append(". ").append(game.usernames[s]).append(" (").append(game.playerScores[s]).append(')');
+        }
+        System.out.println(top);
+
+        boolean ok = Arrays.equals(scores, game.recordedTotals);
+        if (game.recordedFinal == null) {
+            System.out.println("Sem placar final: o jogo não acabou (servidor parado ou jogo a decorrer).");
+        } else if (Arrays.equals(scores, game.recordedFinal)) {
+            System.out.println("Placar final registado (" + TIME.format(new Date(game.finishedAt)) + "): confere.");
+        } else {
+            ok = false;
+            System.out.println("Placar final registado: DIFERENTE " + Arrays.toString(game.recordedFinal));
+        }
+        if (!Arrays.equals(scores, game.recordedTotals)) {
+            System.out.println("Aviso: a soma dos pontos não bate com os totais registados " + Arrays.toString(game.recordedTotals));
+        }
+        return ok;
+    }
+}
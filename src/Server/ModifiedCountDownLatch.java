@@ -1,39 +1,107 @@
 package Server;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+// Latch das rondas individuais, sem locks: cada resposta é um CAS sobre um único long
+//   [ronda (16 bits) | respostas esperadas (24 bits) | respostas recebidas (24 bits)]
+// A ordem de chegada (e o bónus) é atribuída atomicamente. Cada resposta indica a ronda a que pertence
+// e o CAS falha se a ronda do latch já for outra, por isso uma resposta atrasada nunca conta na nova.
+// O mesmo objeto é reutilizado de ronda para ronda com reset().
 public class ModifiedCountDownLatch {
-    private int waitPeriod;  // 10s
-    private int count;
-    private int bonusCount;
-    private int bonusFactor;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    static final int MAX_COUNT = (int) COUNT_MASK;
+
+    private final int waitPeriod;  // 10s
+    private final int bonusCount;
+    private final int bonusFactor;
+    // Recebe o número da ronda que chegou a zero, para o jogo ignorar rondas já fechadas
+    private final IntConsumer onZero;
+
+    private final AtomicLong state = new AtomicLong();
+    private volatile Thread waiter;
 
     public ModifiedCountDownLatch(int bonusFactor, int bonusCount, int waitPeriod, int count) {
+        this(bonusFactor, bonusCount, waitPeriod, count, null);
+    }
+
+    public ModifiedCountDownLatch(int bonusFactor, int bonusCount, int waitPeriod, int count, IntConsumer onZero) {
         this.bonusFactor = bonusFactor;
         this.waitPeriod = waitPeriod;
         this.bonusCount = bonusCount;
-        this.count = count;
-        }
+        this.onZero = onZero;
+        reset(count);
+    }
 
-    // Chamado pelos clientes quando respondem
-    public synchronized int countDown() {
-        if (count <= 0) return 1; 
+    public int getWaitPeriod() {
+        return waitPeriod;
+    }
 
-        count--;
-        
-        if (bonusCount > 0) {
-            bonusCount--;
+    // Prepara o latch para uma nova ronda com 'count' respostas esperadas. Devolve o número da ronda.
+    public int reset(int count) {
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("Número de respostas inválido: " + count);
+        }
+        while (true) {
+            long s = state.get();
+            int round = (round(s) + 1) & 0xFFFF;
+            if (state.compareAndSet(s, ((long) round << (2 * COUNT_BITS)) | ((long) count << COUNT_BITS))) {
+                return round;
+            }
         }
+    }
+
+    // Chamado pelos clientes quando respondem à ronda 'round' (a devolvida por reset). Devolve o multiplicador
+    // de pontos: bonusFactor para as primeiras bonusCount respostas, 1 para as restantes, e 0 se o latch
+    // já está noutra ronda (a resposta não conta).
+    public int countDown(int round) {
+        long s;
+        int arrived;
+        int expected;
+        do {
+            s = state.get();
+            if (round(s) != round) return 0;
+            arrived = (int) (s & COUNT_MASK);
+            expected = (int) ((s >>> COUNT_BITS) & COUNT_MASK);
+            if (arrived >= expected) return 1;
+        } while (!state.compareAndSet(s, s + 1));
 
-        if (count == 0) {
-            notifyAll();
+        if (arrived + 1 == expected) {
+            if (onZero != null) {
+                onZero.accept(round(s));
+            }
+            Thread t = waiter;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
         }
+        return arrived < bonusCount ? bonusFactor : 1;
+    }
 
-        return bonusFactor;
+    public int getRemaining() {
+        long s = state.get();
+        return (int) ((s >>> COUNT_BITS) & COUNT_MASK) - (int) (s & COUNT_MASK);
     }
-    public synchronized void await() throws InterruptedException {
-        if (count > 0) {
-            wait(waitPeriod);
 
-            notifyAll();
+    // Espera até todas as respostas chegarem ou acabar o tempo (só uma thread de cada vez)
+    public void await() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitPeriod);
+        waiter = Thread.currentThread();
+        try {
+            long remaining;
+            while (getRemaining() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waiter = null;
         }
     }
-}
\ No newline at end of file
+
+    private static int round(long s) {
+        return (int) (s >>> (2 * COUNT_BITS));
+    }
+}
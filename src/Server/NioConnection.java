@@ -0,0 +1,276 @@
+package Server;
+
+import common.Msg;
+import common.MsgFrames;
+import common.WireProtocol;
+import utils.EventLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Ligação do motor NIO. Leituras e escritas correm sempre na thread do EventLoop a que pertence.
+public class NioConnection extends ClientConnection {
+    private final SocketChannel channel;
+    private final NioEngine.EventLoop loop;
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    private boolean negotiated = false;
+    private boolean loggedIn = false;
+
+    // Frames já tiradas da fila de saída e ainda não escritas por completo (só usado pelo loop)
+    private final ArrayDeque<ByteBuffer> inFlight = new ArrayDeque<>();
+    private boolean closeRequested = false;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ByteBuffer[] gather = new ByteBuffer[16];
+
+    NioConnection(SocketChannel channel, Server server, NioEngine.EventLoop loop) {
+        super(server);
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    // Pode ser chamado de qualquer thread: a mensagem vai para a fila e é escrita pelo loop
+    @Override
+    public void send(EncodedMsg msg) {
+        if (closed.get()) return;
+        try {
+            msg.binaryFrame(protocolVersion);      // codificar já, fora da thread do loop
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (enqueue(msg) && flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    // Fecha depois de escrever o que está pendente (ex: LOGIN_ERROR, GAME_OVER)
+    @Override
+    public void closeConnection() {
+        if (!closed.compareAndSet(false, true)) return;
+        loop.execute(() -> {
+            closeRequested = true;
+            flush();
+        });
+    }
+
+    @Override
+    protected void abortConnection() {
+        closed.set(true);
+        outQueue.clear();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {}
+    }
+
+    @Override
+    protected boolean isClosed() {
+        return closed.get();
+    }
+
+    void onReadable() {
+        int n;
+        try {
+            n = channel.read(readBuffer);
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            onDisconnected();
+            return;
+        }
+
+        readBuffer.flip();
+        if (!negotiated && !negotiateProtocol()) {
+            return;
+        }
+        while (readBuffer.remaining() >= MsgFrames.HEADER_SIZE && !closed.get()) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0 || length > MsgFrames.MAX_FRAME_SIZE) {
+                EventLog.warn("Frame inválida de {} ({} bytes)", channel.socket().getRemoteSocketAddress(), length);
+                onDisconnected();
+                return;
+            }
+
+            int frameSize = MsgFrames.HEADER_SIZE + length;
+            if (readBuffer.remaining() < frameSize) {
+                if (readBuffer.capacity() < frameSize) {
+                    ByteBuffer bigger = ByteBuffer.allocate(frameSize);
+                    bigger.put(readBuffer);
+                    readBuffer = bigger;
+                    return;
+                }
+                break;
+            }
+
+            Msg msg;
+            try {
+                msg = MsgFrames.decode(readBuffer.array(), readBuffer.position() + MsgFrames.HEADER_SIZE, length);
+            } catch (IOException e) {
+                onDisconnected();
+                return;
+            }
+            readBuffer.position(readBuffer.position() + frameSize);
+            try {
+                dispatch(msg);
+            } catch (RuntimeException e) {
+                // Ex: LOGIN cujo conteúdo não é uma String. Só esta ligação cai.
+                EventLog.warn("Mensagem inválida de {}: {}", channel.socket().getRemoteSocketAddress(), e.toString());
+                onDisconnected();
+                return;
+            }
+        }
+        readBuffer.compact();
+    }
+
+    // Lê o HELLO binário ou, se for um cliente antigo (serialização Java), entrega-o ao motor bloqueante.
+    // Devolve true se já se podem ler frames do buffer.
+    private boolean negotiateProtocol() {
+        if (readBuffer.remaining() < 2) {
+            readBuffer.compact();
+            return false;
+        }
+
+        byte[] bytes = readBuffer.array();
+        if (WireProtocol.isLegacyHeader(bytes[0], bytes[1])) {
+            handOffToBlockingEngine();
+            return false;
+        }
+
+        if (readBuffer.remaining() < WireProtocol.HELLO_SIZE) {
+            readBuffer.compact();
+            return false;
+        }
+        if (!WireProtocol.isHello(bytes, 0)) {
+            EventLog.warn("Protocolo desconhecido de {}", channel.socket().getRemoteSocketAddress());
+            closeConnection();
+            return false;
+        }
+
+        int version = WireProtocol.negotiate(bytes[3] & 0xFF);
+        readBuffer.position(WireProtocol.HELLO_SIZE);
+        inFlight.add(ByteBuffer.wrap(WireProtocol.hello(version)));
+        if (flushScheduled.compareAndSet(false, true)) {
+            flush();
+        }
+        if (version == WireProtocol.VERSION_REJECTED) {
+            closeConnection();
+            return false;
+        }
+        protocolVersion = version;
+        negotiated = true;
+        return true;
+    }
+
+    // O Selector não sabe ler serialização Java de forma incremental: o socket passa a modo bloqueante
+    // e fica com um DealWithClient, que recebe os bytes já lidos.
+    private void handOffToBlockingEngine() {
+        byte[] alreadyRead = new byte[readBuffer.remaining()];
+        readBuffer.get(alreadyRead);
+        key.cancel();
+        // Só depois do próximo select() é que o canal sai do selector e pode voltar a ser bloqueante
+        loop.execute(() -> {
+            try {
+                channel.configureBlocking(true);
+                server.startBlockingClient(channel.socket(), alreadyRead);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {}
+            }
+        });
+    }
+
+    private void dispatch(Msg msg) {
+        if (!loggedIn) {
+            loggedIn = true;
+            handleFirstMessage(msg);
+        } else {
+            handleMessage(msg);
+        }
+    }
+
+    void onWritable() {
+        flush();
+    }
+
+    private void flush() {
+        if (!channel.isOpen()) {
+            outQueue.clear();
+            inFlight.clear();
+            return;
+        }
+        try {
+            while (true) {
+                if (!writePending()) {
+                    // Socket cheio: continuar quando o selector disser que dá para escrever
+                    if (key != null && key.isValid()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                    return;
+                }
+                if (closeRequested) {
+                    channel.close();
+                    return;
+                }
+                if (key != null && key.isValid()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                flushScheduled.set(false);
+                // Alguém pode ter posto uma mensagem na fila depois do último write
+                if (outQueue.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            // A ligação pode já estar a fechar (closed a true): closeConnection() não faria nada,
+            // por isso o canal é fechado e a chave cancelada aqui, senão o selector fica a girar
+            server.removeClient(this);
+            abortConnection();
+            inFlight.clear();
+        }
+    }
+
+    // Escreve frames até esvaziar a fila (true) ou o socket não aceitar mais (false).
+    // Várias frames seguidas vão num só write (gathering), sem copiar os arrays partilhados.
+    private boolean writePending() throws IOException {
+        while (true) {
+            EncodedMsg msg;
+            while (inFlight.size() < gather.length && (msg = outQueue.poll()) != null) {
+                // Cada ligação tem a sua vista (posição própria) sobre o mesmo array partilhado
+                inFlight.add(ByteBuffer.wrap(msg.binaryFrame(protocolVersion)));
+            }
+            if (inFlight.isEmpty()) return true;
+
+            int n = 0;
+            for (ByteBuffer buf : inFlight) {
+                gather[n++] = buf;
+            }
+            server.getMetrics().bytesSent.add(channel.write(gather, 0, n));
+            Arrays.fill(gather, 0, n, null);
+
+            while (!inFlight.isEmpty() && !inFlight.peek().hasRemaining()) {
+                inFlight.poll();
+            }
+            if (!inFlight.isEmpty()) return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package Server;
+
+import utils.EventLog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Motor de rede não bloqueante: poucas threads com um Selector cada, em vez de uma thread por ligação
+public class NioEngine {
+    private final Server server;
+    private final int port;
+    private final EventLoop[] loops;
+    private int nextLoop = 0;
+
+    public NioEngine(Server server, int port, int numLoops) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.loops = new EventLoop[numLoops];
+        for (int i = 0; i < numLoops; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+
+    public void start() {
+        for (EventLoop loop : loops) {
+            Thread t = new Thread(loop, "nio-loop-" + loop.id);
+            t.setDaemon(true);
+            t.start();
+        }
+
+        // O accept fica numa thread própria; as ligações são distribuídas pelos loops em round-robin
+        new Thread(() -> {
+            try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+                serverChannel.bind(new InetSocketAddress(port));
+                while (true) {
+                    SocketChannel channel = serverChannel.accept();
+                    server.getMetrics().connectionsAccepted.increment();
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+
+                    EventLoop loop = loops[nextLoop];
+                    nextLoop = (nextLoop + 1) % loops.length;
+                    loop.register(new NioConnection(channel, server, loop));
+                }
+            } catch (IOException e) { e.printStackTrace(); }
+        }, "nio-accept").start();
+    }
+
+    static class EventLoop implements Runnable {
+        final int id;
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int id) throws IOException {
+            this.id = id;
+            this.selector = Selector.open();
+        }
+
+        void register(NioConnection conn) {
+            execute(() -> {
+                try {
+                    conn.setKey(conn.getChannel().register(selector, SelectionKey.OP_READ, conn));
+                } catch (IOException e) {
+                    conn.closeConnection();
+                }
+            });
+        }
+
+        // Corre a tarefa na thread do loop (a partir de qualquer thread)
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    EventLog.error("Selector {}: {}", id, e.getMessage());
+                    continue;
+                }
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        EventLog.error("Selector {}: tarefa falhou: {}", id, e.toString());
+                    }
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+
+                    NioConnection conn = (NioConnection) key.attachment();
+                    // Um erro numa ligação fecha só essa; as outras chaves desta volta continuam
+                    try {
+                        if (!key.isValid()) continue;
+
+                        if (key.isReadable()) {
+                            conn.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            conn.onWritable();
+                        }
+                    } catch (RuntimeException e) {
+                        EventLog.warn("Erro na ligação {}: {}", conn.getChannel().socket().getRemoteSocketAddress(), e.toString());
+                        conn.onDisconnected();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package Server;
+
+import common.Msg;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Fila de saída limitada de uma ligação (buffer circular, sem alocações por mensagem).
+// Quem envia nunca escreve no socket: só enfileira; o escritor da ligação esvazia a fila.
+class OutboundQueue {
+
+    // Contadores partilhados por todas as filas do servidor
+    static class Stats {
+        final LongAdder totalDepth = new LongAdder();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+
+        @Override
+        public String toString() {
+            return "Mensagens em fila: " + totalDepth.sum()
+                    + " | Maior fila: " + maxDepth.get()
+                    + " | Placares substituídos: " + coalesced.sum()
+                    + " | Clientes lentos desligados: " + evictions.sum();
+        }
+    }
+
+    private final EncodedMsg[] items;
+    private final long[] enqueuedAt;
+    private final long maxLagNanos;
+    private final Stats stats;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int head = 0;
+    private int used = 0;       // posições ocupadas, incluindo as de placares substituídos (a null)
+    private int live = 0;       // mensagens por enviar
+
+    OutboundQueue(int capacity, long maxLagMillis, Stats stats) {
+        this.items = new EncodedMsg[capacity];
+        this.enqueuedAt = new long[capacity];
+        this.maxLagNanos = maxLagMillis * 1_000_000L;
+        this.stats = stats;
+    }
+
+    // Devolve false se o cliente ficou demasiado para trás (fila cheia ou mensagem mais antiga demasiado velha)
+    boolean offer(EncodedMsg msg) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            // head é sempre uma mensagem por enviar (ou a fila está vazia): o seu tempo é o da mais antiga
+            if (live > 0 && now - enqueuedAt[head] > maxLagNanos) {
+                return false;
+            }
+
+            // Um placar ainda por enviar já está desatualizado: sai da fila e o novo entra no fim
+            // (se são deltas, o novo absorve as equipas do antigo)
+            if (msg.getMsg().type == Msg.Type.UPDATE_SCORE) {
+                for (int i = 0; i < used; i++) {
+                    int idx = slot(i);
+                    if (items[idx] != null && items[idx].getMsg().type == Msg.Type.UPDATE_SCORE) {
+                        msg = msg.supersede(items[idx]);
+                        items[idx] = null;
+                        live--;
+                        stats.totalDepth.decrement();
+                        stats.coalesced.increment();
+                        skipHoles();
+                        break;
+                    }
+                }
+            }
+
+            if (used == items.length) {
+                compact();
+                if (used == items.length) {
+                    return false;
+                }
+            }
+
+            int idx = slot(used);
+            items[idx] = msg;
+            enqueuedAt[idx] = now;
+            used++;
+            live++;
+            stats.totalDepth.increment();
+            stats.maxDepth.accumulateAndGet(live, Math::max);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    EncodedMsg poll() {
+        lock.lock();
+        try {
+            if (used == 0) return null;
+            EncodedMsg msg = items[head];
+            items[head] = null;
+            head = slot(1);
+            used--;
+            live--;
+            stats.totalDepth.decrement();
+            skipHoles();
+            return msg;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return live == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int depth() {
+        lock.lock();
+        try {
+            return live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Descarta tudo (ligação fechada à força)
+    void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < used; i++) {
+                items[slot(i)] = null;
+            }
+            stats.totalDepth.add(-live);
+            used = 0;
+            live = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Avança head sobre os buracos dos placares substituídos, para a posição de head ter sempre a mensagem
+    // mais antiga por enviar. Chamar com lock.
+    private void skipHoles() {
+        while (used > 0 && items[head] == null) {
+            head = slot(1);
+            used--;
+        }
+    }
+
+    // Junta as mensagens no início da fila, eliminando os buracos dos placares substituídos
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < used; i++) {
+            int from = slot(i);
+            if (items[from] != null) {
+                int to = slot(kept++);
+                items[to] = items[from];
+                enqueuedAt[to] = enqueuedAt[from];
+            }
+        }
+        for (int i = kept; i < used; i++) {
+            items[slot(i)] = null;
+        }
+        used = kept;
+    }
+
+    private int slot(int offset) {
+        return (head + offset) % items.length;
+    }
+}
@@ -0,0 +1,212 @@
+package Server;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Classificação individual de um jogo, mantida a cada resposta (sem ordenar a sala no fim da ronda).
+// É uma treap indexada pelo lugar do jogador (GameInfo.slots), só com arrays de primitivos:
+// ordem por pontos (decrescente) e, em empate, pelo lugar. Cada nó guarda o tamanho da sua subárvore,
+// por isso a posição de um jogador e o top-K custam O(log n) (+K).
+class PlayerLeaderboard {
+    private static final int NIL = -1;
+
+    private final int[] score;
+    private final int[] left;
+    private final int[] right;
+    private final int[] size;
+    private final int[] priority;
+    private final boolean[] ranked;
+    private int root = NIL;
+    private int count = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Resultado de split() (só com lock)
+    private int splitLeft, splitRight;
+
+    PlayerLeaderboard(int numSlots) {
+        this.score = new int[numSlots];
+        this.left = new int[numSlots];
+        this.right = new int[numSlots];
+        this.size = new int[numSlots];
+        this.priority = new int[numSlots];
+        this.ranked = new boolean[numSlots];
+        SplittableRandom random = new SplittableRandom();
+        for (int s = 0; s < numSlots; s++) {
+            priority[s] = random.nextInt();
+        }
+        Arrays.fill(left, NIL);
+        Arrays.fill(right, NIL);
+    }
+
+    // Jogador sentado no lugar: entra na classificação com 0 pontos
+    void join(int slot) {
+        lock.lock();
+        try {
+            if (ranked[slot]) return;
+            score[slot] = 0;
+            insert(slot);
+            ranked[slot] = true;
+            count++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Jogador saiu do jogo
+    void leave(int slot) {
+        lock.lock();
+        try {
+            if (!ranked[slot]) return;
+            root = erase(root, slot);
+            ranked[slot] = false;
+            count--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Devolve os pontos do jogador depois de somar (ou -1 se não está na classificação)
+    int addPoints(int slot, int points) {
+        lock.lock();
+        try {
+            if (!ranked[slot]) return -1;
+            // A chave muda: sai da árvore e volta a entrar na nova posição
+            root = erase(root, slot);
+            score[slot] += points;
+            insert(slot);
+            return score[slot];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Posição (1 = primeiro) ou 0 se o lugar não está na classificação
+    int rank(int slot) {
+        lock.lock();
+        try {
+            if (slot < 0 || slot >= ranked.length || !ranked[slot]) return 0;
+            int before = 0;
+            int t = root;
+            while (t != slot) {
+                if (before(slot, t)) {
+                    t = left[t];
+                } else {
+                    before += sizeOf(left[t]) + 1;
+                    t = right[t];
+                }
+            }
+            return before + sizeOf(left[t]) + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int score(int slot) {
+        lock.lock();
+        try {
+            return slot >= 0 && slot < score.length ? score[slot] : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Os primeiros k (lugar e pontos, por ordem). Devolve quantos foram escritos.
+    int top(int k, int[] slots, int[] scores) {
+        lock.lock();
+        try {
+            return collect(root, Math.min(k, slots.length), slots, scores, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int collect(int t, int k, int[] slots, int[] scores, int n) {
+        if (t == NIL || n >= k) return n;
+        n = collect(left[t], k, slots, scores, n);
+        if (n < k) {
+            slots[n] = t;
+            scores[n] = score[t];
+            n++;
+        }
+        return collect(right[t], k, slots, scores, n);
+    }
+
+    // a vem antes de b na classificação
+    private boolean before(int a, int b) {
+        return score[a] > score[b] || (score[a] == score[b] && a < b);
+    }
+
+    private int sizeOf(int t) {
+        return t == NIL ? 0 : size[t];
+    }
+
+    private void update(int t) {
+        size[t] = sizeOf(left[t]) + sizeOf(right[t]) + 1;
+    }
+
+    private void insert(int slot) {
+        left[slot] = NIL;
+        right[slot] = NIL;
+        size[slot] = 1;
+        split(root, slot);
+        int l = splitLeft;
+        int r = splitRight;
+        root = merge(merge(l, slot), r);
+    }
+
+    private int erase(int t, int slot) {
+        if (t == slot) {
+            return merge(left[t], right[t]);
+        }
+        if (before(slot, t)) {
+            left[t] = erase(left[t], slot);
+        } else {
+            right[t] = erase(right[t], slot);
+        }
+        update(t);
+        return t;
+    }
+
+    // Divide t em [nós antes de k] (splitLeft) e [restantes] (splitRight)
+    private void split(int t, int k) {
+        if (t == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if (before(t, k)) {
+            split(right[t], k);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], k);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    // Junta duas árvores em que todos os nós de a vêm antes dos de b
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+}
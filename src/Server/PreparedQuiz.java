@@ -0,0 +1,50 @@
+package Server;
+
+import common.Msg;
+import model.Question;
+import model.Quiz;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Quiz pronto a jogar: as perguntas já foram lidas do banco e as mensagens NEW_QUESTION (individual e
+// a variante "[EQUIPA]") já estão codificadas. É imutável e partilhado por todos os jogos que usam este
+// quiz na mesma versão do catálogo, por isso cada ronda só envia bytes já feitos.
+final class PreparedQuiz {
+    static final String TEAM_PREFIX = "[EQUIPA] ";
+
+    private final Quiz quiz;
+    private final EncodedMsg[] individualQuestions;
+    private final EncodedMsg[] teamQuestions;
+
+    PreparedQuiz(Quiz source) throws IOException {
+        List<Question> questions = new ArrayList<>(source.getQuestions());
+        this.quiz = new Quiz(source.getName(), Collections.unmodifiableList(questions));
+        this.individualQuestions = new EncodedMsg[questions.size()];
+        this.teamQuestions = new EncodedMsg[questions.size()];
+
+        for (int i = 0; i < questions.size(); i++) {
+            Question q = questions.get(i);
+            Question qTeam = new Question(TEAM_PREFIX + q.getQuestion(), q.getPoints(), q.getCorrect(), q.getOptions());
+            individualQuestions[i] = new EncodedMsg(new Msg(Msg.Type.NEW_QUESTION, q));
+            teamQuestions[i] = new EncodedMsg(new Msg(Msg.Type.NEW_QUESTION, qTeam));
+            // A frame binária fica já feita; a serialização antiga só é feita se houver clientes antigos
+            individualQuestions[i].binaryFrame();
+            teamQuestions[i].binaryFrame();
+        }
+    }
+
+    Quiz getQuiz() {
+        return quiz;
+    }
+
+    int size() {
+        return individualQuestions.length;
+    }
+
+    EncodedMsg newQuestion(int index, boolean teamRound) {
+        return teamRound ? teamQuestions[index] : individualQuestions[index];
+    }
+}
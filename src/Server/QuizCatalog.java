@@ -0,0 +1,147 @@
+package Server;
+
+import model.Quiz;
+import utils.EventLog;
+import utils.QuestionBank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Catálogo de quizzes com recarregamento a quente. O ficheiro de perguntas é vigiado (WatchService);
+// quando muda, é lido em fundo e a nova versão é publicada de uma vez (uma só escrita volatile).
+// Os jogos novos usam a versão atual; os jogos a decorrer ficam com o PreparedQuiz com que começaram.
+class QuizCatalog {
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final long RETIRE_DELAY_SECONDS = 60;
+
+    // Versão imutável do catálogo: banco + quizzes já preparados (criados na primeira vez que são pedidos)
+    private static final class Snapshot {
+        final QuestionBank bank;
+        final List<String> names;
+        final ConcurrentHashMap<String, PreparedQuiz> prepared = new ConcurrentHashMap<>();
+
+        Snapshot(QuestionBank bank) {
+            this.bank = bank;
+            this.names = bank.getQuizNames();
+        }
+    }
+
+    private final Path path;
+    private final int cacheSize;
+    private final ScheduledExecutorService scheduler;
+    private volatile Snapshot current;
+
+    QuizCatalog(String path, int cacheSize, ScheduledExecutorService scheduler) throws IOException {
+        this.path = Paths.get(path).toAbsolutePath();
+        this.cacheSize = cacheSize;
+        this.scheduler = scheduler;
+        this.current = new Snapshot(QuestionBank.open(path, cacheSize));
+    }
+
+    List<String> getQuizNames() {
+        return current.names;
+    }
+
+    int getQuestionCount(String name) {
+        Quiz quiz = current.bank.getQuiz(name);
+        return quiz != null ? quiz.getQuestions().size() : 0;
+    }
+
+    // Quiz da versão atual (name == null: o primeiro). Devolve null se não existir.
+    PreparedQuiz prepare(String name) throws IOException {
+        Snapshot snapshot = current;
+        String found = null;
+        for (String quizName : snapshot.names) {
+            if (name == null || quizName.equalsIgnoreCase(name)) {
+                found = quizName;
+                break;
+            }
+        }
+        if (found == null) return null;
+
+        try {
+            return snapshot.prepared.computeIfAbsent(found, n -> {
+                try {
+                    return new PreparedQuiz(snapshot.bank.getQuiz(n));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Thread de fundo que recarrega o catálogo quando o ficheiro muda
+    void startWatching() throws IOException {
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread t = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean changed = drainEvents(key);
+                    // Um editor costuma gerar vários eventos seguidos: esperar que o ficheiro acalme
+                    WatchKey more;
+                    while ((more = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                        changed |= drainEvents(more);
+                    }
+                    if (changed) {
+                        reload();
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // servidor a terminar
+            }
+        }, "quiz-watch");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private boolean drainEvents(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            if (context instanceof Path && path.getFileName().equals(context)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    void reload() {
+        Snapshot old = current;
+        Snapshot fresh;
+        try {
+            fresh = new Snapshot(QuestionBank.open(path.toString(), cacheSize));
+        } catch (Exception e) {
+            // Ficheiro inválido (ou ainda a ser escrito): continua a versão anterior
+            EventLog.warn("Quizzes não recarregados ({}): {}", path.getFileName(), e.getMessage());
+            return;
+        }
+        current = fresh;
+        EventLog.info("Quizzes recarregados: {} quizzes (jogos a decorrer mantêm a versão anterior).", fresh.names.size());
+
+        // Os jogos a decorrer já têm as perguntas em memória; o banco antigo só é fechado depois de um
+        // intervalo, para não falhar a um prepare() que ainda esteja a ler a versão anterior
+        scheduler.schedule(() -> {
+            try {
+                old.bank.close();
+            } catch (IOException ignored) {}
+        }, RETIRE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+}
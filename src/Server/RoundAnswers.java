@@ -0,0 +1,147 @@
+package Server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Respostas da ronda atual, indexadas pelo lugar do jogador (ver GameInfo.slots).
+// answered/correct/seated são bitsets de 64 lugares por palavra; uma resposta repetida
+// é rejeitada com um só CAS no bit de claimed. A opção e o tempo são escritos antes de o bit de answered
+// ser ligado (CAS volátil), por isso quem vê o bit (o jogo, o JFR) vê também os dados da resposta.
+// Reutilizada de ronda para ronda com reset().
+class RoundAnswers {
+    static final int NO_ANSWER = -1;
+
+    private final int numSlots;
+    private final int slotsPerTeam;
+    private final AtomicLongArray claimed;     // lugares com uma resposta já aceite (ainda a ser escrita)
+    private final AtomicLongArray answered;
+    private final AtomicLongArray correct;
+    private final AtomicLongArray seated;      // lugares ocupados no início da ronda
+    private final int[] chosen;                 // opção escolhida por lugar
+    private final long[] arrivalNanos;          // tempo desde o início da ronda
+    private volatile long roundStart;
+
+    RoundAnswers(int numTeams, int slotsPerTeam) {
+        this.numSlots = numTeams * slotsPerTeam;
+        this.slotsPerTeam = slotsPerTeam;
+        int words = (numSlots + 63) >>> 6;
+        this.claimed = new AtomicLongArray(words);
+        this.answered = new AtomicLongArray(words);
+        this.correct = new AtomicLongArray(words);
+        this.seated = new AtomicLongArray(words);
+        this.chosen = new int[numSlots];
+        this.arrivalNanos = new long[numSlots];
+    }
+
+    // Nova ronda: limpa os bitsets e fotografa os lugares ocupados
+    void reset(AtomicReferenceArray<ClientConnection> slots) {
+        for (int w = 0; w < answered.length(); w++) {
+            claimed.set(w, 0L);
+            answered.set(w, 0L);
+            correct.set(w, 0L);
+            seated.set(w, 0L);
+        }
+        for (int s = 0; s < numSlots; s++) {
+            if (slots.get(s) != null) {
+                setBit(seated, s);
+            }
+            chosen[s] = NO_ANSWER;
+        }
+        roundStart = System.nanoTime();
+    }
+
+    // Regista a resposta de um lugar. Devolve false se esse lugar já tinha respondido nesta ronda.
+    boolean record(int slot, int option, boolean isCorrect) {
+        if (slot < 0 || slot >= numSlots || !setBit(claimed, slot)) {
+            return false;
+        }
+        chosen[slot] = option;
+        arrivalNanos[slot] = System.nanoTime() - roundStart;
+        if (isCorrect) {
+            setBit(correct, slot);
+        }
+        // Publica a resposta: tudo o que foi escrito acima fica visível a quem vir este bit
+        setBit(answered, slot);
+        return true;
+    }
+
+    boolean hasAnswered(int slot) {
+        return (answered.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    boolean isCorrect(int slot) {
+        return (correct.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    // Só depois de hasAnswered(slot) (ou na thread que registou a resposta)
+    int getChosen(int slot) {
+        return chosen[slot];
+    }
+
+    long getArrivalNanos(int slot) {
+        return arrivalNanos[slot];
+    }
+
+    // Lugares que já responderam nesta ronda
+    int answeredCount() {
+        int n = 0;
+        for (int w = 0; w < answered.length(); w++) {
+            n += Long.bitCount(answered.get(w));
+        }
+        return n;
+    }
+
+    // Tempo até à resposta mais tardia da ronda (0 se ninguém respondeu)
+    long lastArrivalNanos() {
+        long last = 0;
+        for (int s = 0; s < numSlots; s++) {
+            if (hasAnswered(s)) {
+                last = Math.max(last, arrivalNanos[s]);
+            }
+        }
+        return last;
+    }
+
+    // Resultado de uma equipa: 2 se todos os jogadores sentados acertaram, 1 se algum acertou, 0 se nenhum.
+    // Percorre só as palavras dos lugares da equipa (64 jogadores por operação).
+    int teamOutcome(int teamId) {
+        int from = teamId * slotsPerTeam;
+        int to = from + slotsPerTeam;
+        boolean anySeated = false;
+        boolean allCorrect = true;
+        boolean anyCorrect = false;
+
+        for (int s = from; s < to; ) {
+            int w = s >>> 6;
+            int end = Math.min(to, (w + 1) << 6);
+            long mask = rangeMask(s & 63, end - (w << 6));
+            long seat = seated.get(w) & mask;
+            long ok = correct.get(w) & mask;
+            anySeated |= seat != 0;
+            anyCorrect |= ok != 0;
+            allCorrect &= (ok & seat) == seat;
+            s = end;
+        }
+
+        if (anySeated && allCorrect) return 2;
+        return anyCorrect ? 1 : 0;
+    }
+
+    // Bits [from, to) de uma palavra (to <= 64)
+    private static long rangeMask(int from, int to) {
+        long upper = to == 64 ? -1L : (1L << to) - 1;
+        return upper & -(1L << from);
+    }
+
+    // Liga o bit; devolve false se já estava ligado
+    private static boolean setBit(AtomicLongArray bits, int index) {
+        int w = index >>> 6;
+        long bit = 1L << index;
+        long old;
+        do {
+            old = bits.get(w);
+            if ((old & bit) != 0) return false;
+        } while (!bits.compareAndSet(w, old, old | bit));
+        return true;
+    }
+}
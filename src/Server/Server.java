@@ -1,89 +1,119 @@
 package Server;
 
 import common.Msg;
+import common.MsgFrames;
+import common.ScoreUpdate;
+import common.WireProtocol;
 import model.GameState;
-import model.Question;
-import model.Quiz;
-import utils.JsonLoader;
+import utils.EventLog;
 
+import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class Server {
-    private static final int PORT = 12345;
-    private static final int TEMPO_ESPERA = 3000;     // 3s
-    private final Map<String, GameInfo> activeGames = new HashMap<>();
-    private Quiz defaultQuiz;
-
-    private class GameInfo {
-        final String gameId;
-        final int numTeamsExpected;
-        final int playersPerTeamExpected;
-        final GameState gameState;
-        final List<DealWithClient> clients = new ArrayList<>();
-        ModifiedCountDownLatch currentLatch;
-        TeamBarrier currentBarrier;
-        boolean isTeamRound = false;
-
-        GameInfo(String gameId, int numTeams, int playersPerTeam, Quiz quiz) {
-            this.gameId = gameId;
-            this.numTeamsExpected = numTeams;
-            this.playersPerTeamExpected = playersPerTeam;
-            this.gameState = new GameState(quiz, numTeams);
-        }
+    // Jogadores no top individual enviado com cada placar
+    static final int TOP_PLAYERS = 10;
+    // Ficheiro com os códigos criados pelo comando bulk (um por linha)
+    private static final String BULK_CODES_FILE = "jogos.txt";
+    // Registo concorrente: procurar um jogo não bloqueia logins nem respostas de outros jogos
+    private final Map<String, GameInfo> activeGames = new ConcurrentHashMap<>();
+    // Índice global de usernames (em minúsculas), reservados no login e libertados em removeClient
+    private final Map<String, ClientConnection> usernames = new ConcurrentHashMap<>();
+    private final ServerConfig config;
+    private final ExecutorService clientExecutor;
+    // Todos os jogos correm como máquinas de estados (GameRunner) neste scheduler
+    private final ScheduledExecutorService gameScheduler;
+    private final OutboundQueue.Stats outboundStats = new OutboundQueue.Stats();
+    // Melhores equipas e jogadores de todos os jogos ativos
+    private final GlobalLeaderboard globalLeaderboard = new GlobalLeaderboard();
+    private final GameCodeAllocator gameCodes = new GameCodeAllocator();
+    private final ServerMetrics metrics = new ServerMetrics(activeGames::size, usernames::size);
+    // Eventos de todos os jogos, em disco (desligado se a pasta não puder ser usada)
+    private final GameJournal journal;
+    // Quizzes (recarregados a quente): escolhidos pelo nome no comando new
+    private QuizCatalog quizzes;
 
-        int getTotalPlayersNeeded() {
-            return numTeamsExpected * playersPerTeamExpected;
-        }
+    public Server(String jsonPath) {
+        this(jsonPath, ServerConfig.fromSystemProperties());
     }
 
+    public Server(String jsonPath, ServerConfig config) {
+        this.config = config;
+        this.clientExecutor = config.newTaskExecutor("cliente");
+        this.gameScheduler = config.newGameScheduler();
+        System.out.println("Modo de execução: " + config.getThreadMode() + " | Motor de rede: " + config.getEngine()
+                + " | Respostas: " + config.getAnswerMode());
+        this.journal = openJournal(config);
 
-    public Server(String jsonPath) {
         try {
-            JsonLoader loader = new JsonLoader(jsonPath);
-            // Carregar o quiz uma vez
-            this.defaultQuiz = loader.getQuizzes().get(0);
-            System.out.println("Quiz carregado: " + defaultQuiz.getName());
+            // Só o índice fica em memória; as perguntas são lidas quando um jogo precisa delas
+            this.quizzes = new QuizCatalog(jsonPath, config.getQuizCacheSize(), gameScheduler);
+            System.out.println("Quizzes carregados: " + quizzes.getQuizNames().size() + " (por omissão: " + quizzes.getQuizNames().get(0) + ")");
+            if (config.isQuizWatch()) {
+                quizzes.startWatching();
+            }
 
             startConnectionLoop();
+            if (config.getMetricsPort() >= 0) {
+                metrics.startHttp(config.getMetricsPort());
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    // Gerador de códigos (4 letras maiúsculas)
-    private String generateUniqueGameCode() {
-        Random rnd = new Random();
-        StringBuilder sb = new StringBuilder();
-        // A geração do código é feita até ser único na lista de jogos ativos
-        synchronized (activeGames) {
-            do {
-                sb.setLength(0);
-                for (int i = 0; i < 4; i++) {
-                    sb.append((char) ('A' + rnd.nextInt(26)));
-                }
-            } while (activeGames.containsKey(sb.toString()));
+    private static GameJournal openJournal(ServerConfig config) {
+        try {
+            GameJournal journal = GameJournal.open(config.getJournalDir(), config.getJournalSegmentSize(), config.getJournalFlushMillis());
+            if (journal.isEnabled()) {
+                System.out.println("Diário de jogos em: " + config.getJournalDir());
+            }
+            return journal;
+        } catch (java.io.IOException e) {
+            System.out.println("Aviso: diário de jogos desligado (" + e.getMessage() + ")");
+            return GameJournal.disabled();
         }
-        return sb.toString();
+    }
+
+    // Cria e regista um jogo com um código livre (o alocador garante que é único)
+    private GameInfo createGame(int numTeams, int playersPerTeam, PreparedQuiz quiz) {
+        String code = gameCodes.allocate();
+        if (code == null) {
+            throw new IllegalStateException("Não há códigos de jogo livres (" + GameCodeAllocator.CAPACITY + " jogos ativos).");
+        }
+        GameInbox inbox = config.getAnswerMode() == ServerConfig.AnswerMode.INBOX ? new GameInbox(gameScheduler) : null;
+        GameInfo newGame = new GameInfo(code, numTeams, playersPerTeam, quiz, inbox, globalLeaderboard, journal);
+        journal.gameCreated(code, quiz.getQuiz().getName(), numTeams, playersPerTeam, quiz.size());
+        activeGames.put(code, newGame);
+        return newGame;
     }
 
     public void runTUI() {
         java.util.Scanner scanner = new java.util.Scanner(System.in);
         System.out.println("Servidor pronto. Comandos disponíveis:");
-        System.out.println(" > new <nEquipas> <nJogadoresPorEquipa>");
+        System.out.println(" > new <nEquipas> <nJogadoresPorEquipa> [nome do quiz]");
+        System.out.println(" > bulk <nJogos> <nEquipas> <nJogadoresPorEquipa> [nome do quiz] (códigos em " + BULK_CODES_FILE + ")");
         System.out.println(" > list (vê jogos/jogadores ligados)");
+        System.out.println(" > quizzes (quizzes disponíveis)");
+        System.out.println(" > queues (filas de saída dos clientes)");
+        System.out.println(" > top [n] (melhores equipas e jogadores de todos os jogos)");
+        System.out.println(" > stats (métricas do servidor)");
 
         while (true) {
             String line = scanner.nextLine();
             String[] parts = line.split(" ");
 
-            if (parts[0].equalsIgnoreCase("new") && parts.length == 3) {
+            if (parts[0].equalsIgnoreCase("new") && parts.length >= 3) {
                 try {
                     int numTeams = Integer.parseInt(parts[1]);
                     int playersPerTeam = Integer.parseInt(parts[2]);
@@ -93,36 +123,120 @@ public class Server {
                         continue;
                     }
 
-                    String gameCode = generateUniqueGameCode();
-
-                    synchronized (activeGames) {
-                        GameInfo newGame = new GameInfo(gameCode, numTeams, playersPerTeam, defaultQuiz);
-                        activeGames.put(gameCode, newGame);
+                    // O nome do quiz é o resto da linha (pode ter espaços)
+                    String quizName = parts.length > 3 ? line.trim().split(" +", 4)[3] : null;
+                    PreparedQuiz quiz = quizzes.prepare(quizName);
+                    if (quiz == null) {
+                        System.out.println("Erro: Quiz '" + quizName + "' não existe (ver comando quizzes).");
+                        continue;
+                    }
+                    if (quiz.size() == 0) {
+                        System.out.println("Erro: O quiz '" + quiz.getQuiz().getName() + "' não tem perguntas.");
+                        continue;
                     }
 
-                    System.out.println("Novo jogo configurado!");
+                    String gameCode = createGame(numTeams, playersPerTeam, quiz).gameId;
+
+                    System.out.println("Novo jogo configurado! (Quiz: " + quiz.getQuiz().getName() + ")");
                     System.out.println("Código do jogo: " + gameCode);
                     System.out.println("À espera de " + (numTeams * playersPerTeam) + " jogadores.");
 
                 } catch (NumberFormatException e) {
                     System.out.println("Erro: Os argumentos têm de ser números inteiros.");
+                } catch (IllegalStateException e) {
+                    System.out.println("Erro: " + e.getMessage());
+                } catch (java.io.IOException | RuntimeException e) {
+                    System.out.println("Erro ao preparar o quiz: " + e.getMessage());
                 }
             }
-            else if (parts[0].equalsIgnoreCase("list")) {
-                synchronized (activeGames) {
-                    if (activeGames.isEmpty()) {
-                        System.out.println("Nenhum jogo ativo.");
+            else if (parts[0].equalsIgnoreCase("bulk") && parts.length >= 4) {
+                // Muitos jogos de uma vez (ex: para o client.LoadGenerator)
+                try {
+                    int numGames = Integer.parseInt(parts[1]);
+                    int numTeams = Integer.parseInt(parts[2]);
+                    int playersPerTeam = Integer.parseInt(parts[3]);
+
+                    if (numGames <= 0 || numTeams <= 0 || playersPerTeam <= 0) {
+                        System.out.println("Erro: Os números de jogos/equipas/jogadores têm de ser positivos.");
                         continue;
                     }
-                    System.out.println("--- JOGOS ATIVOS ---");
-                    for (GameInfo game : activeGames.values()) {
-                        System.out.printf("JOGO %s: %d/%d jogadores ligados. (Status: %s)\n",
-                                game.gameId,
-                                game.clients.size(),
-                                game.getTotalPlayersNeeded(),
-                                game.clients.size() < game.getTotalPlayersNeeded() ? "À espera" : "A decorrer"
-                        );
+
+                    String quizName = parts.length > 4 ? line.trim().split(" +", 5)[4] : null;
+                    PreparedQuiz quiz = quizzes.prepare(quizName);
+                    if (quiz == null || quiz.size() == 0) {
+                        System.out.println("Erro: Quiz '" + quizName + "' não existe ou não tem perguntas (ver comando quizzes).");
+                        continue;
                     }
+
+                    List<String> codes = new ArrayList<>(numGames);
+                    for (int g = 0; g < numGames; g++) {
+                        codes.add(createGame(numTeams, playersPerTeam, quiz).gameId);
+                    }
+                    java.nio.file.Files.write(java.nio.file.Paths.get(BULK_CODES_FILE), codes);
+
+                    System.out.println(numGames + " jogos criados (Quiz: " + quiz.getQuiz().getName() + "), cada um à espera de "
+                            + (numTeams * playersPerTeam) + " jogadores. Códigos em " + BULK_CODES_FILE + ".");
+                } catch (NumberFormatException e) {
+                    System.out.println("Erro: Os argumentos têm de ser números inteiros.");
+                } catch (IllegalStateException e) {
+                    System.out.println("Erro: " + e.getMessage());
+                } catch (java.io.IOException | RuntimeException e) {
+                    System.out.println("Erro ao criar os jogos: " + e.getMessage());
+                }
+            }
+            else if (parts[0].equalsIgnoreCase("list")) {
+                int codesInUse = gameCodes.inUse();
+                System.out.printf("Códigos de jogo em uso: %d/%d (%.2f%%)\n",
+                        codesInUse, GameCodeAllocator.CAPACITY, 100.0 * codesInUse / GameCodeAllocator.CAPACITY);
+                if (activeGames.isEmpty()) {
+                    System.out.println("Nenhum jogo ativo.");
+                    continue;
+                }
+                System.out.println("--- JOGOS ATIVOS ---");
+                for (GameInfo game : activeGames.values()) {
+                    System.out.printf("JOGO %s: %d/%d jogadores ligados. (Status: %s)\n",
+                            game.gameId,
+                            game.clients.size(),
+                            game.getTotalPlayersNeeded(),
+                            game.clients.size() < game.getTotalPlayersNeeded() ? "À espera" : "A decorrer"
+                    );
+                }
+            }
+            else if (parts[0].equalsIgnoreCase("quizzes")) {
+                for (String name : quizzes.getQuizNames()) {
+                    System.out.println(" - " + name + " (" + quizzes.getQuestionCount(name) + " perguntas)");
+                }
+            }
+            else if (parts[0].equalsIgnoreCase("queues")) {
+                System.out.println(outboundStats);
+            }
+            else if (parts[0].equalsIgnoreCase("top")) {
+                int k = 10;
+                try {
+                    if (parts.length > 1) k = Math.max(1, Integer.parseInt(parts[1]));
+                } catch (NumberFormatException e) {
+                    System.out.println("Erro: O número tem de ser inteiro.");
+                    continue;
+                }
+                List<GlobalLeaderboard.Entry> topTeams = getTopTeams(k);
+                List<GlobalLeaderboard.Entry> topPlayers = getTopPlayers(k);
+                if (topTeams.isEmpty() && topPlayers.isEmpty()) {
+                    System.out.println("Ainda não há pontos em nenhum jogo ativo.");
+                    continue;
+                }
+                System.out.println("--- MELHORES EQUIPAS ---");
+                for (int i = 0; i < topTeams.size(); i++) {
+                    System.out.println((i + 1) + ". " + topTeams.get(i));
+                }
+                System.out.println("--- MELHORES JOGADORES ---");
+                for (int i = 0; i < topPlayers.size(); i++) {
+                    System.out.println((i + 1) + ". " + topPlayers.get(i));
+                }
+            }
+            else if (parts[0].equalsIgnoreCase("stats")) {
+                System.out.println(metrics.summary());
+                if (journal.getDropped() > 0) {
+                    System.out.println("Diário de jogos: " + journal.getDropped() + " registos perdidos");
                 }
             }
             else {
@@ -131,313 +245,360 @@ public class Server {
         }
     }
 
-    private void startConnectionLoop() {
+    private void startConnectionLoop() throws java.io.IOException {
+        if (config.getEngine() == ServerConfig.Engine.NIO) {
+            new NioEngine(this, config.getPort(), config.getNioLoops()).start();
+            return;
+        }
+
         new Thread(() -> {
-            try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+            try (ServerSocket serverSocket = new ServerSocket(config.getPort())) {
                 while (true) {
                     Socket socket = serverSocket.accept();
+                    metrics.connectionsAccepted.increment();
 
-                    DealWithClient client = new DealWithClient(socket, this);
-                    client.start();
+                    startBlockingClient(socket, new byte[0]);
                 }
             } catch (Exception e) { e.printStackTrace(); }
         }).start();
     }
 
-    // Chamado por DealWithClient APÓS um login bem-sucedido.
-    public void onClientLoggedIn(DealWithClient client, String gameId) {
-        GameInfo game;
+    // Trata a ligação com o motor bloqueante (DealWithClient)
+    void startBlockingClient(Socket socket, byte[] alreadyRead) {
+        clientExecutor.execute(new DealWithClient(socket, alreadyRead, this));
+    }
 
-        synchronized (activeGames) {
-            game = activeGames.get(gameId);
-        }
+    // Tarefas curtas das ligações (ex: escritor da fila de saída do motor bloqueante)
+    void executeClientTask(Runnable task) {
+        clientExecutor.execute(task);
+    }
+
+    OutboundQueue newOutboundQueue() {
+        return new OutboundQueue(config.getOutboundQueueSize(), config.getOutboundMaxLagMillis(), outboundStats);
+    }
+
+    OutboundQueue.Stats getOutboundStats() {
+        return outboundStats;
+    }
+
+    ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    GameJournal getJournal() {
+        return journal;
+    }
+
+    // Chamado pela ligação (ClientConnection) APÓS um login bem-sucedido.
+    public void onClientLoggedIn(ClientConnection client, String gameId, int requestedTeam) {
+        GameInfo game = activeGames.get(gameId);
 
         if (game == null) {
+            releaseUsername(client);
+            GameEvents.login(client.getUsername(), gameId, requestedTeam + 1, client.protocolVersion, false, "jogo não encontrado");
             client.send(new Msg(Msg.Type.LOGIN_ERROR, "Jogo " + gameId + " não encontrado."));
             client.closeConnection();
             return;
         }
 
-        synchronized (game.clients) {
-            if (game.clients.size() >= game.getTotalPlayersNeeded()) {
+        game.clientsLock.lock();
+        try {
+            if (game.started || !game.assignSlot(client, requestedTeam)) {
+                releaseUsername(client);
+                GameEvents.login(client.getUsername(), gameId, requestedTeam + 1, client.protocolVersion, false,
+                        game.started ? "jogo a decorrer" : "jogo cheio");
                 client.send(new Msg(Msg.Type.LOGIN_ERROR, "Jogo " + gameId + " está cheio ou a decorrer."));
                 client.closeConnection();
                 return;
             }
 
             game.clients.add(client);
+            metrics.logins.mark();
+            GameEvents.login(client.getUsername(), gameId, client.getTeamId() + 1, client.protocolVersion, true, null);
             client.send(new Msg(Msg.Type.LOGIN_OK, "Bem-vindo " + client.getUsername()));
+            if (client.getTeamId() != requestedTeam) {
+                EventLog.info("JOGO {} | {} colocado na Equipa {} (a pedida não tinha lugar).", gameId, client.getUsername(), client.getTeamId() + 1);
+            }
 
-            System.out.println("JOGO " + gameId + " | Jogadores: " + game.clients.size() + "/" + game.getTotalPlayersNeeded());
+            EventLog.info("JOGO {} | Jogadores: {}/{}", gameId, game.clients.size(), game.getTotalPlayersNeeded());
 
             if (game.clients.size() == game.getTotalPlayersNeeded()) {
-                System.out.println("JOGO " + gameId + " COMPLETO. A INICIAR...");
-                new Thread(() -> startGame(game)).start();
+                EventLog.info("JOGO {} COMPLETO. A INICIAR...", gameId);
+                game.started = true;
+                new GameRunner(this, game, gameScheduler).start();
             }
+        } finally {
+            game.clientsLock.unlock();
         }
     }
 
-    private void startGame(GameInfo game) {
-        try {
-            System.out.println("O jogo " + game.gameId + " vai começar em 3 segundos...");
-            Thread.sleep(TEMPO_ESPERA);
-
-            List<Question> questions = game.gameState.getQuiz().getQuestions();
-
-            for (int i = 0; i < questions.size(); i++) {
-                Question q = questions.get(i);
-
-                game.isTeamRound = (i % 2 != 0);
-
-                System.out.println("\n--- PERGUNTA " + (i + 1) + " (" + (game.isTeamRound ? "EQUIPA" : "INDIVIDUAL") + ") para o JOGO " + game.gameId + " ---");
-
-                synchronized(game.clients) {
-                    System.out.println("Jogadores ativos: " + game.clients.size() + " jogadores.");
-
-                    if (game.isTeamRound) {
-                        game.currentLatch = null;
-                        game.currentBarrier = new TeamBarrier(game.clients.size());
-                    } else {
-                        game.currentBarrier = null;
-                        game.currentLatch = new ModifiedCountDownLatch(2, 1, 10000, game.clients.size());
-                    }
-                }
-
-                // Enviar a pergunta a todos
-                if (game.isTeamRound) {
-                    Question qTeam = new Question(
-                            "[EQUIPA] " + q.getQuestion(),
-                            q.getPoints(),
-                            q.getCorrect(),
-                            q.getOptions()
-                    );
-                    broadcast(game, new Msg(Msg.Type.NEW_QUESTION, qTeam));
-                } else {
-                    broadcast(game, new Msg(Msg.Type.NEW_QUESTION, q));
-                }
-
-                // Esperar pelas respostas
-                if (game.isTeamRound) {
-                    System.out.println("Servidor à espera na Barreira (Modo Equipa) para " + game.gameId + "...");
-                    game.currentBarrier.await();
-
-                    // Calcular resultados por equipa
-                    int numTeams = game.gameState.getTeamScores().size();
-                    boolean[] teamAllCorrect = new boolean[numTeams];
-                    boolean[] teamAtLeastOneCorrect = new boolean[numTeams];
-
-                    for(int t=0; t<numTeams; t++) {
-                        teamAllCorrect[t] = true;
-                        teamAtLeastOneCorrect[t] = false;
-                    }
+    // Placar para UPDATE_SCORE/GAME_OVER: os clientes v2 recebem o ScoreUpdate; o HTML completo só é
+    // gerado (uma vez por broadcast) se houver clientes antigos no jogo
+    EncodedMsg scoreMessage(GameInfo game, Msg.Type type, ScoreUpdate update, int[] scores) {
+        return new EncodedMsg(new Msg(type, update), WireProtocol.VERSION_SCORE_UPDATE,
+                () -> new Msg(type, type == Msg.Type.GAME_OVER
+                        ? getFinalScoreSummary(game, scores)
+                        : getScoreSummary(update.getQuestionNumber(), update.getTotalQuestions(), scores)));
+    }
 
-                    synchronized(game.clients) {
-                        for (DealWithClient client : game.clients) {
-                            int teamId = getTeamIdForPlayer(client, game.gameId);
-                            boolean correct = client.isLastAnswerCorrect();
-
-                            if (correct) {
-                                teamAtLeastOneCorrect[teamId] = true;
-                            } else {
-                                teamAllCorrect[teamId] = false;
-                            }
-                        }
-                    }
+    // Envia o placar a todos os jogadores do jogo. O placar das equipas é igual para todos, mas os clientes
+    // v2 recebem também o top individual e a sua posição, por isso cada um leva a sua mensagem
+    // (o top é lido uma vez; a posição de cada jogador custa O(log n) na classificação).
+    void sendScoreboard(GameInfo game, Msg.Type type, ScoreUpdate update, int[] scores) {
+        long start = System.nanoTime();
+        GameEvents.Broadcast event = new GameEvents.Broadcast();
+        event.begin();
+        EncodedMsg shared = scoreMessage(game, type, update, scores);
+
+        int[] topSlots = new int[TOP_PLAYERS];
+        int[] topScores = new int[TOP_PLAYERS];
+        int n = game.leaderboard.top(TOP_PLAYERS, topSlots, topScores);
+        String[] topNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            ClientConnection c = game.slots.get(topSlots[i]);
+            topNames[i] = c != null ? c.getUsername() : "?";
+        }
+        topScores = Arrays.copyOf(topScores, n);
+        int rankedPlayers = game.leaderboard.size();
 
-                    int basePoints = q.getPoints();
-
-                    for (int t = 0; t < numTeams; t++) {
-                        int pointsToAdd = 0;
-                        if (teamAllCorrect[t]) {
-                            pointsToAdd = basePoints * 2;
-                            System.out.println("Equipa " + (t+1) + " do jogo " + game.gameId + ": TODOS acertaram! (Pontos x2: " + pointsToAdd + ")");
-                        } else if (teamAtLeastOneCorrect[t]) {
-                            pointsToAdd = basePoints;
-                            System.out.println("Equipa " + (t+1) + " do jogo " + game.gameId + ": Acertaram parcialmente. (Pontos normais: " + pointsToAdd + ")");
-                        } else {
-                            System.out.println("Equipa " + (t+1) + " do jogo " + game.gameId + ": Ninguém acertou.");
-                        }
-
-                        if (pointsToAdd > 0) {
-                            synchronized (game.gameState) {
-                                game.gameState.addPointsToTeam(t, pointsToAdd);
-                            }
-                        }
+        List<ClientConnection> activeClients;
+        game.clientsLock.lock();
+        try {
+            activeClients = new ArrayList<>(game.clients);
+        } finally {
+            game.clientsLock.unlock();
+        }
+        // Placar e top codificados uma só vez; cada cliente v2 recebe esse prefixo seguido da sua posição
+        // (alguns bytes), em vez de uma frame inteira codificada por jogador
+        byte[] rankingPrefix = null;
+        // Só com gravação JFR: guarda o que cada um recebeu para somar os bytes no fim
+        EncodedMsg[] sent = event.isEnabled() ? new EncodedMsg[activeClients.size()] : null;
+        for (int i = 0; i < activeClients.size(); i++) {
+            ClientConnection client = activeClients.get(i);
+            EncodedMsg msg = shared;
+            if (client.protocolVersion >= WireProtocol.VERSION_SCORE_UPDATE) {
+                int slot = client.getSlot();
+                int rank = game.leaderboard.rank(slot);
+                int score = game.leaderboard.score(slot);
+                ScoreUpdate own = update.withRanking(topNames, topScores, rank, score, rankedPlayers);
+                try {
+                    if (rankingPrefix == null) {
+                        rankingPrefix = MsgFrames.encodeRankingPrefix(type, own);
                     }
-                    System.out.println("Barreira libertada (ou tempo esgotou) para " + game.gameId + ".");
-                } else {
-                    System.out.println("Servidor à espera no Latch (Modo Individual) para " + game.gameId + "...");
-                    game.currentLatch.await();
-                    System.out.println("Latch libertado (ou tempo esgotou) para " + game.gameId + ".");
-                }
-
-                game.gameState.nextQuestion();
-
-                // Enviar Placar Intermédio
-                if (i < questions.size() - 1) {
-                    System.out.println("A enviar placar intermédio para " + game.gameId + "...");
-                    broadcast(game, new Msg(Msg.Type.UPDATE_SCORE, getScoreSummary(game)));
-
-                    Thread.sleep(TEMPO_ESPERA);
-                } else {
-                    Thread.sleep(TEMPO_ESPERA);
+                    msg = shared.withContent(own, MsgFrames.withPlayerRank(rankingPrefix, rank, score, rankedPlayers));
+                } catch (IOException e) {
+                    // Não acontece (só tipos conhecidos); a frame é então codificada no envio
+                    msg = shared.withContent(own);
                 }
             }
-
-            // Fim do Jogo
-            System.out.println("JOGO " + game.gameId + " TERMINADO.");
-
-            // Placar Final
-            StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'><h1>FIM DO JOGO! (ID: " + game.gameId + ")</h1>");
-            List<Integer> scores = game.gameState.getTeamScores();
-
-            sb.append("<table border='1' style='margin: auto;'><tr><th>Equipa</th><th>Pontos</th></tr>");
-            for (int t = 0; t < scores.size(); t++) {
-                sb.append("<tr><td>Equipa ").append(t + 1).append("</td>");
-                sb.append("<td>").append(scores.get(t)).append("</td></tr>");
+            client.send(msg);
+            if (sent != null) sent[i] = msg;
+        }
+        metrics.broadcast.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            long bytes = 0;
+            for (int i = 0; i < sent.length; i++) {
+                bytes += activeClients.get(i).encodedSize(sent[i]);
             }
-            sb.append("</table></div></html>");
-
-            // Envia mensagem final
-            broadcast(game, new Msg(Msg.Type.GAME_OVER, sb.toString()));
+            commitBroadcast(event, game, type, activeClients.size(), bytes);
+        }
+    }
 
-            // Fechar conexões e remover o jogo
-            closeAllClientConnections(game.gameId);
+    private static void commitBroadcast(GameEvents.Broadcast event, GameInfo game, Msg.Type type, int recipients, long bytes) {
+        event.gameId = game.gameId;
+        event.type = type.name();
+        event.recipients = recipients;
+        event.bytes = bytes;
+        event.commit();
+    }
 
-            synchronized (activeGames) {
-                activeGames.remove(game.gameId);
-                System.out.println("Jogo " + game.gameId + " removido da lista de ativos.");
-            }
+    // Gera a string HTML com o placar atual para UPDATE_SCORE (clientes antigos)
+    public String getScoreSummary(int questionNumber, int totalQuestions, int[] scores) {
+        StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'><h3>Placar Atual (Pergunta " + questionNumber + "/" + totalQuestions + ")</h3>");
 
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        sb.append("<table border='1' style='margin: auto;'><tr><th>Equipa</th><th>Pontos</th></tr>");
+        for (int t = 0; t < scores.length; t++) {
+            sb.append("<tr><td>Equipa ").append(t + 1).append("</td>");
+            sb.append("<td>").append(scores[t]).append("</td></tr>");
         }
+        sb.append("</table></div></html>");
+
+        return sb.toString();
     }
 
-    // Gera a string HTML com o placar atual para UPDATE_SCORE
-    public String getScoreSummary(GameInfo game) {
-        StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'><h3>Placar Atual (Pergunta " + (game.gameState.getCurrentIndex() + 1) + "/" + game.gameState.getTotalQuestions() + ")</h3>");
-        List<Integer> scores = game.gameState.getTeamScores();
+    // Gera a string HTML com o placar final para GAME_OVER (clientes antigos)
+    public String getFinalScoreSummary(GameInfo game, int[] scores) {
+        StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'><h1>FIM DO JOGO! (ID: " + game.gameId + ")</h1>");
 
         sb.append("<table border='1' style='margin: auto;'><tr><th>Equipa</th><th>Pontos</th></tr>");
-        for (int t = 0; t < scores.size(); t++) {
+        for (int t = 0; t < scores.length; t++) {
             sb.append("<tr><td>Equipa ").append(t + 1).append("</td>");
-            sb.append("<td>").append(scores.get(t)).append("</td></tr>");
+            sb.append("<td>").append(scores[t]).append("</td></tr>");
         }
         sb.append("</table></div></html>");
 
         return sb.toString();
     }
 
-    // Procura o username em todos os jogos ativos
+    // Chamado pelo GameRunner quando o jogo acaba
+    void removeGame(GameInfo game) {
+        if (activeGames.remove(game.gameId, game)) {
+            gameCodes.release(game.gameId);
+        }
+        globalLeaderboard.removeGame(game.globalBoard);
+        EventLog.info("Jogo {} removido da lista de ativos.", game.gameId);
+    }
+
     public boolean isUsernameTaken(String username) {
-        synchronized (activeGames) {
-            for (GameInfo game : activeGames.values()) {
-                synchronized (game.clients) {
-                    for (DealWithClient client : game.clients) {
-                        if (client.getUsername() != null && client.getUsername().equalsIgnoreCase(username)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-            return false;
+        return usernames.containsKey(username.toLowerCase(Locale.ROOT));
+    }
+
+    // Reserva o username de forma atómica (sem distinguir maiúsculas). Devolve false se já está em uso.
+    public boolean reserveUsername(String username, ClientConnection client) {
+        return usernames.putIfAbsent(username.toLowerCase(Locale.ROOT), client) == null;
+    }
+
+    private void releaseUsername(ClientConnection client) {
+        if (client.getUsername() != null) {
+            usernames.remove(client.getUsername().toLowerCase(Locale.ROOT), client);
         }
     }
 
-    // Broadcast por Jogo
+    // Broadcast por Jogo: a mensagem é codificada uma vez e os mesmos bytes vão para todas as ligações
     public void broadcast(GameInfo game, Msg msg) {
-        synchronized (game.clients) {
-            List<DealWithClient> activeClients = new ArrayList<>(game.clients);
-            for (DealWithClient client : activeClients) {
-                client.send(msg);
+        broadcast(game, new EncodedMsg(msg));
+    }
+
+    // Envia uma mensagem já codificada (ex: perguntas preparadas com o quiz)
+    void broadcast(GameInfo game, EncodedMsg encoded) {
+        long start = System.nanoTime();
+        GameEvents.Broadcast event = new GameEvents.Broadcast();
+        event.begin();
+        List<ClientConnection> activeClients;
+        game.clientsLock.lock();
+        try {
+            activeClients = new ArrayList<>(game.clients);
+        } finally {
+            game.clientsLock.unlock();
+        }
+        for (ClientConnection client : activeClients) {
+            client.send(encoded);
+        }
+        metrics.broadcast.recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            long bytes = 0;
+            for (ClientConnection client : activeClients) {
+                bytes += client.encodedSize(encoded);
             }
+            commitBroadcast(event, game, encoded.getMsg().type, activeClients.size(), bytes);
         }
     }
 
     // Fecha todas as conexões para um Jogo
     public void closeAllClientConnections(String gameId) {
         GameInfo game;
-        synchronized (activeGames) {
-            game = activeGames.get(gameId);
-        }
+        game = activeGames.get(gameId);
         if (game == null) return;
 
-        synchronized (game.clients) {
-            List<DealWithClient> clientsToClose = new ArrayList<>(game.clients);
-            for (DealWithClient client : clientsToClose) {
+        game.clientsLock.lock();
+        try {
+            List<ClientConnection> clientsToClose = new ArrayList<>(game.clients);
+            for (ClientConnection client : clientsToClose) {
+                releaseUsername(client);
+                game.releaseSlot(client);
                 try {
                     client.closeConnection();
                 } catch (Exception e) {}
             }
             game.clients.clear();
+        } finally {
+            game.clientsLock.unlock();
         }
     }
 
     // Remove cliente do jogo
-    public void removeClient(DealWithClient client) {
+    public void removeClient(ClientConnection client) {
+        releaseUsername(client);
         String gameId = client.getGameId();
         if (gameId == null) return;
 
-        synchronized (activeGames) {
-            GameInfo game = activeGames.get(gameId);
-            if (game != null) {
-                synchronized (game.clients) {
-                    game.clients.remove(client);
-                    System.out.println("Cliente " + client.getUsername() + " removido do JOGO " + gameId);
-                }
+        GameInfo game = activeGames.get(gameId);
+        if (game != null) {
+            game.clientsLock.lock();
+            try {
+                game.clients.remove(client);
+                game.releaseSlot(client);
+                EventLog.info("Cliente {} removido do JOGO {}", client.getUsername(), gameId);
+            } finally {
+                game.clientsLock.unlock();
             }
         }
     }
 
 
     public GameState getGameState(String gameId) {
-        synchronized (activeGames) {
-            GameInfo game = activeGames.get(gameId);
-            return game != null ? game.gameState : null;
-        }
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.gameState : null;
     }
 
     public ModifiedCountDownLatch getCurrentLatch(String gameId) {
-        synchronized (activeGames) {
-            GameInfo game = activeGames.get(gameId);
-            return game != null ? game.currentLatch : null;
-        }
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.currentLatch : null;
     }
 
     public boolean isTeamRound(String gameId) {
-        synchronized (activeGames) {
-            GameInfo game = activeGames.get(gameId);
-            return game != null && game.isTeamRound;
-        }
+        GameInfo game = activeGames.get(gameId);
+        return game != null && game.isTeamRound;
     }
 
     public TeamBarrier getCurrentBarrier(String gameId) {
-        synchronized (activeGames) {
-            GameInfo game = activeGames.get(gameId);
-            return game != null ? game.currentBarrier : null;
-        }
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.currentBarrier : null;
     }
 
-    public int getTeamIdForPlayer(DealWithClient client, String gameId) {
-        GameInfo game;
-        synchronized(activeGames) {
-            game = activeGames.get(gameId);
-        }
+    GameInbox getInbox(String gameId) {
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.inbox : null;
+    }
 
-        if (game == null) return -1;
+    long getOpenRound(String gameId) {
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.openRound : GameInfo.NO_ROUND;
+    }
 
-        synchronized(game.clients) {
-            int playerIndex = game.clients.indexOf(client);
+    RoundAnswers getCurrentAnswers(String gameId) {
+        GameInfo game = activeGames.get(gameId);
+        return game != null ? game.currentAnswers : null;
+    }
 
-            int divisor = (game.numTeamsExpected > 1) ? game.numTeamsExpected : 1;
+    void addTeamPoints(String gameId, int teamId, int points) {
+        GameInfo game = activeGames.get(gameId);
+        if (game != null) {
+            game.addTeamPoints(teamId, points);
+        }
+    }
 
-            return playerIndex % divisor;
+    void addPlayerPoints(String gameId, int slot, String username, int points) {
+        GameInfo game = activeGames.get(gameId);
+        if (game != null) {
+            game.addPlayerPoints(slot, username, points);
         }
     }
 
+    // Classificação de todos os jogos ativos (ex: para uma interface de administração)
+    public List<GlobalLeaderboard.Entry> getTopTeams(int k) {
+        return globalLeaderboard.topTeams(k);
+    }
+
+    public List<GlobalLeaderboard.Entry> getTopPlayers(int k) {
+        return globalLeaderboard.topPlayers(k);
+    }
+
     public static void main(String[] args) {
-        Server s = new Server("data/questions.json");
+        // Opcional: outro ficheiro de perguntas (.json ou banco já compilado .bank)
+        Server s = new Server(args.length > 0 ? args[0] : "data/questions.json");
         s.runTUI();
     }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package Server;
+
+import utils.QuestionBank;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Configuração do servidor, lida das propriedades do sistema (ex: -Diskahoot.threads=virtual) ou montada
+// com o Builder (ex: ServerConfig.builder().engine(Engine.NIO).port(0).build())
+public class ServerConfig {
+
+    public enum ThreadMode {
+        PLATFORM,   // Uma thread do SO por ligação de cliente
+        VIRTUAL     // Virtual threads (requer JDK 21+, senão volta a PLATFORM)
+    }
+
+    public enum Engine {
+        BLOCKING,   // DealWithClient com ObjectInputStream/ObjectOutputStream por ligação
+        NIO         // Selector com poucos event loops (NioEngine)
+    }
+
+    public enum AnswerMode {
+        DIRECT,     // Cada ligação aplica a sua resposta (latch/barreira/pontos) na própria thread
+        INBOX       // As ligações só enfileiram; um consumidor por jogo aplica as respostas por ordem (GameInbox)
+    }
+
+    private final ThreadMode threadMode;
+    private final Method virtualExecutorFactory;
+    private final Engine engine;
+    private final int nioLoops;
+    private final int outboundQueueSize;
+    private final long outboundMaxLagMillis;
+    private final int gameThreads;
+    private final AnswerMode answerMode;
+    private final int quizCacheSize;
+    private final boolean quizWatch;
+    private final int port;
+    private final int metricsPort;
+    private final String journalDir;
+    private final int journalSegmentSize;
+    private final long journalFlushMillis;
+
+    public static final int DEFAULT_PORT = 12345;
+    // Pasta sugerida para o diário (e a que o JournalReplay lê sem argumentos); o diário vem desligado
+    public static final String DEFAULT_JOURNAL_DIR = "journal";
+    public static final int DEFAULT_JOURNAL_SEGMENT_MB = 64;
+    public static final long DEFAULT_JOURNAL_FLUSH_MILLIS = 200;
+
+    private ServerConfig(Builder b) {
+        ThreadMode threadMode = b.threadMode;
+        Method factory = null;
+        if (threadMode == ThreadMode.VIRTUAL) {
+            try {
+                // Executors.newVirtualThreadPerTaskExecutor() só existe a partir do JDK 21
+                factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            } catch (NoSuchMethodException e) {
+                System.out.println("Aviso: virtual threads indisponíveis nesta JVM (" + Runtime.version() + "), a usar threads normais.");
+                threadMode = ThreadMode.PLATFORM;
+            }
+        }
+        this.threadMode = threadMode;
+        this.virtualExecutorFactory = factory;
+        this.engine = b.engine;
+        this.nioLoops = Math.max(1, b.nioLoops);
+        this.outboundQueueSize = Math.max(1, b.outboundQueueSize);
+        this.outboundMaxLagMillis = b.outboundMaxLagMillis;
+        this.gameThreads = Math.max(1, b.gameThreads);
+        this.answerMode = b.answerMode;
+        this.quizCacheSize = Math.max(0, b.quizCacheSize);
+        this.quizWatch = b.quizWatch;
+        this.port = b.port;
+        this.metricsPort = b.metricsPort;
+        this.journalDir = b.journalDir;
+        this.journalSegmentSize = Math.max(1, b.journalSegmentMb) << 20;
+        this.journalFlushMillis = Math.max(1, b.journalFlushMillis);
+    }
+
+    // Valores por omissão (sem olhar para as propriedades do sistema)
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Valores das propriedades do sistema, que ainda se podem mudar antes do build()
+    public static Builder systemProperties() {
+        Builder b = new Builder()
+                .threadMode(ThreadMode.valueOf(System.getProperty("iskahoot.threads", "platform").toUpperCase()))
+                .engine(Engine.valueOf(System.getProperty("iskahoot.engine", "blocking").toUpperCase()))
+                .nioLoops(Integer.getInteger("iskahoot.nio.loops", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)))
+                .outboundQueue(Integer.getInteger("iskahoot.out.queue", 256), Long.getLong("iskahoot.out.maxLagMs", 15000))
+                .gameThreads(Integer.getInteger("iskahoot.game.threads", Runtime.getRuntime().availableProcessors()))
+                .answerMode(AnswerMode.valueOf(System.getProperty("iskahoot.answers", "direct").toUpperCase()))
+                .quizCacheSize(Integer.getInteger("iskahoot.quiz.cache", QuestionBank.DEFAULT_CACHE_SIZE))
+                .quizWatch(Boolean.parseBoolean(System.getProperty("iskahoot.quiz.watch", "true")))
+                .port(Integer.getInteger("iskahoot.port", DEFAULT_PORT))
+                .metricsPort(Integer.getInteger("iskahoot.metrics.port", -1));
+        // Diário só com iskahoot.journal.dir (cada arranque cria um segmento do tamanho de segmentMb)
+        String journalDir = System.getProperty("iskahoot.journal.dir", "off");
+        if (journalDir.isEmpty() || journalDir.equalsIgnoreCase("off")) {
+            journalDir = null;
+        }
+        return b.journal(journalDir,
+                Integer.getInteger("iskahoot.journal.segmentMb", DEFAULT_JOURNAL_SEGMENT_MB),
+                Long.getLong("iskahoot.journal.flushMs", DEFAULT_JOURNAL_FLUSH_MILLIS));
+    }
+
+    public static ServerConfig fromSystemProperties() {
+        return systemProperties().build();
+    }
+
+    public static final class Builder {
+        private ThreadMode threadMode = ThreadMode.PLATFORM;
+        private Engine engine = Engine.BLOCKING;
+        private int nioLoops = 1;
+        private int outboundQueueSize = 256;
+        private long outboundMaxLagMillis = 15000;
+        private int gameThreads = Runtime.getRuntime().availableProcessors();
+        private AnswerMode answerMode = AnswerMode.DIRECT;
+        private int quizCacheSize = QuestionBank.DEFAULT_CACHE_SIZE;
+        private boolean quizWatch = true;
+        private int port = DEFAULT_PORT;
+        private int metricsPort = -1;
+        private String journalDir = null;
+        private int journalSegmentMb = DEFAULT_JOURNAL_SEGMENT_MB;
+        private long journalFlushMillis = DEFAULT_JOURNAL_FLUSH_MILLIS;
+
+        private Builder() {}
+
+        public Builder threadMode(ThreadMode threadMode) {
+            this.threadMode = threadMode;
+            return this;
+        }
+
+        public Builder engine(Engine engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        public Builder nioLoops(int nioLoops) {
+            this.nioLoops = nioLoops;
+            return this;
+        }
+
+        public Builder outboundQueue(int size, long maxLagMillis) {
+            this.outboundQueueSize = size;
+            this.outboundMaxLagMillis = maxLagMillis;
+            return this;
+        }
+
+        public Builder gameThreads(int gameThreads) {
+            this.gameThreads = gameThreads;
+            return this;
+        }
+
+        public Builder answerMode(AnswerMode answerMode) {
+            this.answerMode = answerMode;
+            return this;
+        }
+
+        public Builder quizCacheSize(int quizCacheSize) {
+            this.quizCacheSize = quizCacheSize;
+            return this;
+        }
+
+        public Builder quizWatch(boolean quizWatch) {
+            this.quizWatch = quizWatch;
+            return this;
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder metricsPort(int metricsPort) {
+            this.metricsPort = metricsPort;
+            return this;
+        }
+
+        // dir null: diário desligado
+        public Builder journal(String dir, int segmentMb, long flushMillis) {
+            this.journalDir = dir;
+            this.journalSegmentMb = segmentMb;
+            this.journalFlushMillis = flushMillis;
+            return this;
+        }
+
+        public ServerConfig build() {
+            return new ServerConfig(this);
+        }
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getNioLoops() {
+        return nioLoops;
+    }
+
+    // Máximo de mensagens por enviar a um cliente antes de ser desligado por lentidão
+    public int getOutboundQueueSize() {
+        return outboundQueueSize;
+    }
+
+    // Idade máxima da mensagem mais antiga por enviar a um cliente
+    public long getOutboundMaxLagMillis() {
+        return outboundMaxLagMillis;
+    }
+
+    public int getGameThreads() {
+        return gameThreads;
+    }
+
+    public AnswerMode getAnswerMode() {
+        return answerMode;
+    }
+
+    // Perguntas guardadas em memória pelo banco de perguntas (as restantes são lidas do disco)
+    public int getQuizCacheSize() {
+        return quizCacheSize;
+    }
+
+    // Recarregar os quizzes quando o ficheiro de perguntas muda
+    public boolean isQuizWatch() {
+        return quizWatch;
+    }
+
+    // Porta TCP do servidor (0: uma porta livre escolhida pelo sistema)
+    public int getPort() {
+        return port;
+    }
+
+    // Porta local do endpoint HTTP de métricas (-1: desligado, 0: uma porta livre)
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    // Pasta do diário de jogos (null: desligado)
+    public String getJournalDir() {
+        return journalDir;
+    }
+
+    // Tamanho de cada segmento do diário, em bytes
+    public int getJournalSegmentSize() {
+        return journalSegmentSize;
+    }
+
+    // Intervalo entre os force() do diário para o disco
+    public long getJournalFlushMillis() {
+        return journalFlushMillis;
+    }
+
+    // Scheduler partilhado por todos os jogos: as fases são tarefas curtas, nunca bloqueiam
+    public ScheduledExecutorService newGameScheduler() {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(gameThreads,
+                r -> new Thread(r, "jogo-" + counter.incrementAndGet()));
+        // Os timeouts cancelados (ronda fechada pela última resposta) não ficam a ocupar a fila
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    // Executor para tarefas das ligações de clientes
+    public ExecutorService newTaskExecutor(String namePrefix) {
+        if (threadMode == ThreadMode.VIRTUAL) {
+            try {
+                return (ExecutorService) virtualExecutorFactory.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Não foi possível criar o executor de virtual threads", e);
+            }
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+        return Executors.newCachedThreadPool(factory);
+    }
+}
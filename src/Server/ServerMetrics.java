@@ -0,0 +1,264 @@
+package Server;
+
+import com.sun.net.httpserver.HttpServer;
+import common.Msg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+// Métricas do servidor, sempre ligadas: só contadores LongAdder e histogramas com contagens atómicas,
+// por isso registar nunca bloqueia as threads das ligações nem do jogo.
+// Lidas pelo comando stats da consola e (se iskahoot.metrics.port >= 0) em texto simples por HTTP,
+// em http://127.0.0.1:<porta>/metrics, no formato de texto do Prometheus.
+class ServerMetrics {
+    private static final Msg.Type[] TYPES = Msg.Type.values();
+
+    final LongAdder connectionsAccepted = new LongAdder();
+    final Rate logins = new Rate();
+    private final LongAdder[] messagesIn = newAdders(TYPES.length);
+    private final LongAdder[] messagesOut = newAdders(TYPES.length);
+    final LongAdder bytesSent = new LongAdder();
+    // Enviar uma mensagem (pergunta ou placar) a todos os jogadores de um jogo
+    final Histogram broadcast = new Histogram();
+    // Desde o envio da pergunta até à resposta ser aplicada
+    final Histogram answerLatency = new Histogram();
+    // Desde o envio da pergunta até o latch/barreira fechar a ronda (última resposta ou tempo esgotado)
+    final Histogram latchWait = new Histogram();
+    final Histogram barrierWait = new Histogram();
+
+    private final IntSupplier activeGames;
+    private final IntSupplier activePlayers;
+
+    ServerMetrics(IntSupplier activeGames, IntSupplier activePlayers) {
+        this.activeGames = activeGames;
+        this.activePlayers = activePlayers;
+    }
+
+    void messageIn(Msg.Type type) {
+        messagesIn[type.ordinal()].increment();
+    }
+
+    void messageOut(Msg.Type type) {
+        messagesOut[type.ordinal()].increment();
+    }
+
+    private static LongAdder[] newAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Resumo para a consola (comando stats)
+    String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Ligações aceites: ").append(connectionsAccepted.sum())
+                .append(" | Logins: ").append(logins.total())
+                .append(String.format(" (%.1f/s no último minuto)", logins.perSecond()))
+                .append('\n');
+        sb.append("Jogos ativos: ").append(activeGames.getAsInt())
+                .append(" | Jogadores: ").append(activePlayers.getAsInt()).append('\n');
+        sb.append("Mensagens recebidas:");
+        appendByType(sb, messagesIn);
+        sb.append("\nMensagens enviadas:");
+        appendByType(sb, messagesOut);
+        sb.append("\nBytes enviados: ").append(bytesSent.sum()).append('\n');
+        sb.append("Broadcast:            ").append(broadcast).append('\n');
+        sb.append("Pergunta -> resposta: ").append(answerLatency).append('\n');
+        sb.append("Espera no latch:      ").append(latchWait).append('\n');
+        sb.append("Espera na barreira:   ").append(barrierWait);
+        return sb.toString();
+    }
+
+    private static void appendByType(StringBuilder sb, LongAdder[] counts) {
+        for (int t = 0; t < TYPES.length; t++) {
+            long n = counts[t].sum();
+            if (n > 0) {
+                sb.append(' ').append(TYPES[t]).append('=').append(n);
+            }
+        }
+    }
+
+    // Formato de texto do Prometheus (tempos em segundos)
+    String render() {
+        StringBuilder sb = new StringBuilder(2048);
+        counter(sb, "iskahoot_connections_accepted_total", connectionsAccepted.sum());
+        counter(sb, "iskahoot_logins_total", logins.total());
+        sb.append("# TYPE iskahoot_logins_per_second gauge\n");
+        sb.append("iskahoot_logins_per_second ").append(logins.perSecond()).append('\n');
+        sb.append("# TYPE iskahoot_active_games gauge\n");
+        sb.append("iskahoot_active_games ").append(activeGames.getAsInt()).append('\n');
+        sb.append("# TYPE iskahoot_active_players gauge\n");
+        sb.append("iskahoot_active_players ").append(activePlayers.getAsInt()).append('\n');
+        byType(sb, "iskahoot_messages_in_total", messagesIn);
+        byType(sb, "iskahoot_messages_out_total", messagesOut);
+        counter(sb, "iskahoot_bytes_sent_total", bytesSent.sum());
+        broadcast.render(sb, "iskahoot_broadcast_seconds");
+        answerLatency.render(sb, "iskahoot_answer_latency_seconds");
+        latchWait.render(sb, "iskahoot_latch_wait_seconds");
+        barrierWait.render(sb, "iskahoot_barrier_wait_seconds");
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, String name, long value) {
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void byType(StringBuilder sb, String name, LongAdder[] counts) {
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        for (int t = 0; t < TYPES.length; t++) {
+            sb.append(name).append("{type=\"").append(TYPES[t]).append("\"} ").append(counts[t].sum()).append('\n');
+        }
+    }
+
+    // Endpoint HTTP só na interface local (não é para ficar exposto na rede)
+    void startHttp(int port) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/metrics", exchange -> {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        http.start();
+        System.out.println("Métricas em http://127.0.0.1:" + http.getAddress().getPort() + "/metrics");
+    }
+
+    // Eventos por segundo no último minuto. Cada posição guarda o segundo a que pertence (32 bits de cima)
+    // e a contagem (32 de baixo) num só long, por isso mudar de segundo e contar é um só CAS.
+    static final class Rate {
+        private static final int WINDOW_SECONDS = 60;
+
+        private final long origin = System.nanoTime();
+        private final AtomicLongArray buckets = new AtomicLongArray(WINDOW_SECONDS);
+        private final LongAdder total = new LongAdder();
+
+        void mark() {
+            total.increment();
+            long second = currentSecond();
+            int i = (int) (second % WINDOW_SECONDS);
+            long old, updated;
+            do {
+                old = buckets.get(i);
+                updated = (old >>> 32) == second ? old + 1 : (second << 32) | 1;
+            } while (!buckets.compareAndSet(i, old, updated));
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        // Média dos últimos 60 segundos completos (o segundo atual ainda não acabou)
+        double perSecond() {
+            long now = currentSecond();
+            long sum = 0;
+            for (long s = now - WINDOW_SECONDS; s < now; s++) {
+                if (s < 0) continue;
+                long v = buckets.get((int) (s % WINDOW_SECONDS));
+                if ((v >>> 32) == s) {
+                    sum += v & 0xFFFFFFFFL;
+                }
+            }
+            return (double) sum / WINDOW_SECONDS;
+        }
+
+        // Segundos desde que o servidor arrancou (cabe em 32 bits)
+        private long currentSecond() {
+            return (System.nanoTime() - origin) / 1_000_000_000L;
+        }
+    }
+
+    // Histograma de tempos em nanossegundos com 8 sub-intervalos por potência de 2 (erro até 12,5%):
+    // registar é um incremento atómico na posição do valor, sem locks nem alocações.
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;     // ~18 minutos; acima disso conta no último intervalo
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(bucket(nanos));
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        // Mede desde start (System.nanoTime())
+        void recordSince(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        private static int bucket(long v) {
+            if (v < SUB_COUNT) return (int) v;
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(v), MAX_EXPONENT);
+            int sub = exponent == MAX_EXPONENT && v >= (1L << (MAX_EXPONENT + 1))
+                    ? SUB_COUNT - 1
+                    : (int) (v >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        // Maior valor que cai na posição (usado para os quantis)
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) return bucket;
+            int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            int sub = bucket % SUB_COUNT;
+            return ((long) (SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        // Quantil aproximado (em nanossegundos), nunca acima do máximo registado
+        long quantile(double q) {
+            long n = count.sum();
+            if (n == 0) return 0;
+            long target = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts.get(b);
+                if (seen >= target) {
+                    return Math.min(upperBound(b), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        void render(StringBuilder sb, String name) {
+            sb.append("# TYPE ").append(name).append(" summary\n");
+            for (double q : QUANTILES) {
+                sb.append(name).append("{quantile=\"").append(q).append("\"} ").append(seconds(quantile(q))).append('\n');
+            }
+            sb.append(name).append("_sum ").append(seconds(sumNanos.sum())).append('\n');
+            sb.append(name).append("_count ").append(count.sum()).append('\n');
+            sb.append(name).append("_max ").append(seconds(maxNanos.get())).append('\n');
+        }
+
+        private static double seconds(long nanos) {
+            return nanos / 1e9;
+        }
+
+        @Override
+        public String toString() {
+            long n = count.sum();
+            if (n == 0) return "sem amostras";
+            return String.format("n=%d | média %.2f ms | p50 %.2f ms | p90 %.2f ms | p99 %.2f ms | máx %.2f ms",
+                    n, sumNanos.sum() / 1e6 / n, quantile(0.5) / 1e6, quantile(0.9) / 1e6, quantile(0.99) / 1e6,
+                    maxNanos.get() / 1e6);
+        }
+    }
+}
@@ -1,57 +1,131 @@
 package Server;
 
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
 
+// Barreira das rondas de equipa, reutilizável e sem locks (no estilo de um Phaser).
+// Cada equipa tem o seu contador [ronda (16 bits) | esperados (24 bits) | chegados (24 bits)] e avisa
+// quando a equipa inteira respondeu, para a pontuação dessa equipa não esperar pela sala toda.
+// Um segundo contador, com o mesmo formato, conta as equipas completas e abre a barreira.
 public class TeamBarrier {
-    private static final int TEMPO_RESPOSTA = 10000;  // 10s
+    static final int TEMPO_RESPOSTA = 10000;  // 10s
 
-    private final int totalMembers;
-    private int count;
-    private final Lock lock = new ReentrantLock();
-    private final Condition trip = lock.newCondition();
-    private boolean timeExpired = false;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
 
-    public TeamBarrier(int PlayerSize) {
-        this.totalMembers = PlayerSize;
-        this.count = PlayerSize;
+    // Avisado quando todos os jogadores de uma equipa responderam
+    public interface TeamListener {
+        void teamCompleted(int round, int teamId);
     }
 
-    // Chamado pelo DealWithClient quando recebe uma resposta
-    public void playerFinished() {
-        lock.lock();
-        try {
-            count--;
-            if (count == 0) {
-                trip.signalAll();
+    private final AtomicLongArray teams;
+    private final AtomicLong completedTeams = new AtomicLong();
+    private final TeamListener onTeamDone;
+    // Chamado quando todas as equipas acabaram, para o jogo avançar sem esperar pelo timeout
+    private final IntConsumer onTrip;
+    private volatile Thread waiter;
+
+    public TeamBarrier(int numTeams, TeamListener onTeamDone, IntConsumer onTrip) {
+        this.teams = new AtomicLongArray(numTeams);
+        this.onTeamDone = onTeamDone;
+        this.onTrip = onTrip;
+    }
+
+    public int getNumTeams() {
+        return teams.length();
+    }
+
+    // Prepara uma nova ronda com o número de jogadores de cada equipa. Devolve o número da ronda.
+    // Equipas sem jogadores não entram na contagem.
+    public int reset(int[] membersPerTeam) {
+        int round = (round(completedTeams.get()) + 1) & 0xFFFF;
+        int activeTeams = 0;
+        for (int members : membersPerTeam) {
+            if (members < 0 || members > COUNT_MASK) {
+                throw new IllegalArgumentException("Número de jogadores inválido: " + members);
             }
-        } finally {
-            lock.unlock();
+            if (members > 0) activeTeams++;
+        }
+        // Primeiro o contador global: uma resposta atrasada que ainda caia no contador antigo
+        // de uma equipa já não consegue contar para a ronda nova
+        completedTeams.set(pack(round, activeTeams));
+        for (int t = 0; t < teams.length(); t++) {
+            teams.set(t, pack(round, membersPerTeam[t]));
         }
+        return round;
     }
 
-    public void await() throws InterruptedException {
-        lock.lock();
-        try {
-            if (count > 0 && !timeExpired) {
-                boolean timeLeft = trip.await(TEMPO_RESPOSTA, java.util.concurrent.TimeUnit.MILLISECONDS);
-                
-                if (!timeLeft) {
-                    timeExpired = true;
-                }
+    // Chamado pela ligação quando recebe uma resposta de um jogador da equipa teamId, para a ronda 'round'
+    // (a devolvida por reset). Devolve false se a resposta não contou: ronda já trocada ou equipa completa.
+    public boolean playerFinished(int round, int teamId) {
+        if (teamId < 0 || teamId >= teams.length()) return false;
+
+        long s;
+        do {
+            s = teams.get(teamId);
+            if (round(s) != round || arrived(s) >= expected(s)) return false;
+        } while (!teams.compareAndSet(teamId, s, s + 1));
+
+        if (arrived(s) + 1 < expected(s)) return true;
+
+        if (onTeamDone != null) {
+            onTeamDone.teamCompleted(round, teamId);
+        }
+
+        long c;
+        do {
+            c = completedTeams.get();
+            if (round(c) != round || arrived(c) >= expected(c)) return true;
+        } while (!completedTeams.compareAndSet(c, c + 1));
+
+        if (arrived(c) + 1 == expected(c)) {
+            if (onTrip != null) {
+                onTrip.accept(round);
+            }
+            Thread t = waiter;
+            if (t != null) {
+                LockSupport.unpark(t);
             }
-        } finally {
-            lock.unlock();
         }
+        return true;
     }
-    
+
     public boolean allResponded() {
-        lock.lock();
+        long c = completedTeams.get();
+        return arrived(c) >= expected(c);
+    }
+
+    // Espera até todas as equipas acabarem ou passar TEMPO_RESPOSTA (só uma thread de cada vez)
+    public void await() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TEMPO_RESPOSTA);
+        waiter = Thread.currentThread();
         try {
-            return count == 0;
+            long remaining;
+            while (!allResponded() && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            }
         } finally {
-            lock.unlock();
+            waiter = null;
         }
     }
-}
\ No newline at end of file
+
+    private static long pack(int round, int expected) {
+        return ((long) round << (2 * COUNT_BITS)) | ((long) expected << COUNT_BITS);
+    }
+
+    private static int round(long s) {
+        return (int) (s >>> (2 * COUNT_BITS));
+    }
+
+    private static int expected(long s) {
+        return (int) ((s >>> COUNT_BITS) & COUNT_MASK);
+    }
+
+    private static int arrived(long s) {
+        return (int) (s & COUNT_MASK);
+    }
+}
@@ -1,9 +1,14 @@
 package client;
 
 import common.Msg;
+import common.MsgFrames;
+import common.ScoreUpdate;
+import common.WireProtocol;
 import model.Question;
 import javax.swing.*;
 import java.awt.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.Socket;
@@ -18,11 +23,20 @@ public class ClientGUI {
     private Socket socket;
     private ObjectOutputStream out;
     private ObjectInputStream in;
+    // Protocolo binário por omissão; -Diskahoot.protocol=legacy usa a serialização Java antiga
+    private final boolean legacy = "legacy".equalsIgnoreCase(System.getProperty("iskahoot.protocol"));
+    private DataOutputStream frameOut;
+    private DataInputStream frameIn;
 
     private String username;
     private String teamId;
     private String gameId; // NOVO
 
+    // Placar do cliente: o servidor (protocolo v2) só envia as equipas que mudaram
+    private int[] board = new int[0];
+    private int boardSequence = 0;
+    private ScoreUpdate ranking;    // último placar com a classificação individual (ou null)
+
     public ClientGUI(String serverAddress, int serverPort, String gameId, String teamId, String username) {
         this.username = username;
         this.teamId = teamId;
@@ -47,6 +61,8 @@ public class ClientGUI {
         for (int i = 0; i < 4; i++) {
             optionButtons[i] = new JButton("Opção " + (i + 1));
             optionButtons[i].setEnabled(false);
+            // As opções vêm do quiz: uma opção a começar por <html> não pode ser interpretada
+            optionButtons[i].putClientProperty("html.disable", Boolean.TRUE);
             final int idx = i + 1; // 1-based index
             optionButtons[i].addActionListener(e -> submitAnswer(idx));
             center.add(optionButtons[i]);
@@ -65,12 +81,18 @@ public class ClientGUI {
     private void connectToServer(String host, int port) {
         try {
             socket = new Socket(host, port);
-            out = new ObjectOutputStream(socket.getOutputStream());
-            in = new ObjectInputStream(socket.getInputStream());
+            if (legacy) {
+                out = new ObjectOutputStream(socket.getOutputStream());
+                in = new ObjectInputStream(socket.getInputStream());
+            } else {
+                frameOut = new DataOutputStream(new java.io.BufferedOutputStream(socket.getOutputStream()));
+                frameIn = new DataInputStream(new java.io.BufferedInputStream(socket.getInputStream()));
+                WireProtocol.clientHandshake(frameIn, frameOut);
+            }
 
             // Envia LOGIN
             String loginContent = gameId + "|" + teamId + "|" + username;
-            out.writeObject(new Msg(Msg.Type.LOGIN, loginContent));
+            sendMsg(new Msg(Msg.Type.LOGIN, loginContent));
 
             new Thread(new ServerListener()).start();
 
@@ -82,7 +104,7 @@ public class ClientGUI {
 
     private void submitAnswer(int optionIdx) {
         try {
-            out.writeObject(new Msg(Msg.Type.SEND_ANSWER, optionIdx));
+            sendMsg(new Msg(Msg.Type.SEND_ANSWER, optionIdx));
 
             // Bloqueia botões após responder
             for (JButton b : optionButtons) b.setEnabled(false);
@@ -92,12 +114,24 @@ public class ClientGUI {
         }
     }
 
+    private void sendMsg(Msg msg) throws java.io.IOException {
+        if (legacy) {
+            out.writeObject(msg);
+        } else {
+            MsgFrames.write(frameOut, msg);
+        }
+    }
+
+    private Object readMsg() throws Exception {
+        return legacy ? in.readObject() : MsgFrames.read(frameIn);
+    }
+
     private class ServerListener implements Runnable {
         @Override
         public void run() {
             try {
                 while (true) {
-                    Object received = in.readObject();
+                    Object received = readMsg();
                     if (received instanceof Msg) {
                         SwingUtilities.invokeLater(() -> processMessage((Msg) received));
                     }
@@ -122,7 +156,7 @@ public class ClientGUI {
             case NEW_QUESTION:
                 if (msg.content instanceof Question) {
                     Question q = (Question) msg.content;
-                    lblQuestion.setText("<html><div style='text-align: center;'>" + q.getQuestion() + "</div></html>");
+                    lblQuestion.setText("<html><div style='text-align: center;'>" + escapeHtml(q.getQuestion()) + "</div></html>");
 
                     List<String> opts = q.getOptions();
                     for (int i = 0; i < 4; i++) {
@@ -139,18 +173,84 @@ public class ClientGUI {
                 break;
 
             case UPDATE_SCORE:
-                lblStatus.setText((String) msg.content);
+                if (msg.content instanceof ScoreUpdate) {
+                    ScoreUpdate u = (ScoreUpdate) msg.content;
+                    applyScoreUpdate(u);
+                    lblStatus.setText(renderBoard("<h3>Placar Atual (Pergunta " + u.getQuestionNumber() + "/" + u.getTotalQuestions() + ")</h3>"));
+                } else {
+                    // Servidor antigo: placar já em HTML
+                    lblStatus.setText((String) msg.content);
+                }
                 lblQuestion.setText("À espera da próxima pergunta...");
                 break;
 
             case GAME_OVER:
                 lblQuestion.setText("FIM DO JOGO!");
-                lblStatus.setText((String) msg.content);
+                if (msg.content instanceof ScoreUpdate) {
+                    applyScoreUpdate((ScoreUpdate) msg.content);
+                    lblStatus.setText(renderBoard("<h1>FIM DO JOGO! (ID: " + escapeHtml(gameId) + ")</h1>"));
+                } else {
+                    lblStatus.setText((String) msg.content);
+                }
                 for (JButton b : optionButtons) b.setEnabled(false);
                 break;
         }
     }
 
+    private void applyScoreUpdate(ScoreUpdate u) {
+        // Ignora placares mais antigos do que o que já temos
+        if (u.getSequence() <= boardSequence) return;
+        board = u.applyTo(board);
+        boardSequence = u.getSequence();
+        if (u.hasRanking()) {
+            ranking = u;
+        }
+    }
+
+    private String renderBoard(String title) {
+        StringBuilder sb = new StringBuilder("<html><div style='text-align: center;'>").append(title);
+        sb.append("<table border='1' style='margin: auto;'><tr><th>Equipa</th><th>Pontos</th></tr>");
+        for (int t = 0; t < board.length; t++) {
+            sb.append("<tr><td>Equipa ").append(t + 1).append("</td>");
+            sb.append("<td>").append(board[t]).append("</td></tr>");
+        }
+        sb.append("</table>");
+
+        if (ranking != null) {
+            sb.append("<table border='1' style='margin: auto;'><tr><th>#</th><th>Jogador</th><th>Pontos</th></tr>");
+            for (int i = 0; i < ranking.getTopCount(); i++) {
+                boolean me = ranking.getTopName(i).equals(username);
+                sb.append("<tr><td>").append(i + 1).append("</td><td>").append(me ? "<b>" : "")
+                        .append(escapeHtml(ranking.getTopName(i))).append(me ? "</b>" : "").append("</td>");
+                sb.append("<td>").append(ranking.getTopScore(i)).append("</td></tr>");
+            }
+            sb.append("</table>");
+            if (ranking.getPlayerRank() > 0) {
+                sb.append("A tua posição: ").append(ranking.getPlayerRank()).append("º de ").append(ranking.getRankedPlayers())
+                        .append(" (").append(ranking.getPlayerScore()).append(" pontos)");
+            }
+        }
+        sb.append("</div></html>");
+        return sb.toString();
+    }
+
+    // Nomes dos jogadores e texto das perguntas vão para labels em HTML: não podem trazer tags
+    private static String escapeHtml(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': sb.append("&lt;"); break;
+                case '>': sb.append("&gt;"); break;
+                case '&': sb.append("&amp;"); break;
+                case '"': sb.append("&quot;"); break;
+                case '\'': sb.append("&#39;"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
     public static void main(String[] args) {
         if (args.length < 5) {
             System.out.println("Uso correto: java client.ClientGUI <IP> <PORT> <JOGO> <EQUIPA> <USERNAME>");
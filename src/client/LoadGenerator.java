@@ -0,0 +1,390 @@
+package client;
+
+import common.Msg;
+import common.MsgFrames;
+import common.WireProtocol;
+import model.Question;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Gerador de carga sem interface: abre muitas ligações ao servidor (o mesmo protocolo LOGIN/SEND_ANSWER do
+// ClientGUI), responde com a taxa de acerto e o tempo de reflexão configurados e, no fim, mostra o débito
+// dos logins e os percentis de latência.
+// O servidor não confirma cada resposta: a volta de uma resposta é do SEND_ANSWER de cada bot até ao
+// UPDATE_SCORE seguinte (inclui a espera pelo fecho da ronda). A da última pergunta não conta: o placar
+// final só sai depois da pausa do fim do jogo.
+//
+//   java -cp ... client.LoadGenerator <IP> <PORT> <jogos> <jogadoresPorJogo>
+//   <jogos>: códigos separados por vírgulas ou @ficheiro (ex: @jogos.txt, escrito pelo comando bulk do servidor)
+//
+// Propriedades: iskahoot.load.accuracy (0..1, omissão 0.7), iskahoot.load.think (fixed:<ms>, uniform:<min>:<max>
+//               ou exp:<média>; omissão uniform:200:2000), iskahoot.load.rate (ligações por segundo, 0 = sem
+//               limite), iskahoot.load.protocol (binary ou legacy)
+public class LoadGenerator {
+
+    // Tempo de reflexão antes de responder
+    static final class ThinkTime {
+        private final String kind;
+        private final long a, b;
+
+        private ThinkTime(String kind, long a, long b) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+        }
+
+        static ThinkTime parse(String spec) {
+            String[] p = spec.split(":");
+            switch (p[0].toLowerCase(Locale.ROOT)) {
+                case "fixed":
+                    return new ThinkTime("fixed", Long.parseLong(p[1]), 0);
+                case "uniform":
+                    return new ThinkTime("uniform", Long.parseLong(p[1]), Long.parseLong(p[2]));
+                case "exp":
+                    return new ThinkTime("exp", Long.parseLong(p[1]), 0);
+                default:
+                    throw new IllegalArgumentException("Tempo de reflexão inválido: " + spec);
+            }
+        }
+
+        long nextMillis() {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            switch (kind) {
+                case "fixed":
+                    return a;
+                case "uniform":
+                    return a + (b > a ? rnd.nextLong(b - a + 1) : 0);
+                default:
+                    return (long) (-a * Math.log(1.0 - rnd.nextDouble()));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + a + (kind.equals("uniform") ? ":" + b : "");
+        }
+    }
+
+    // Amostras de latência (em nanossegundos); percentis calculados no fim
+    static final class Samples {
+        private long[] values = new long[1024];
+        private int count = 0;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        void add(long nanos) {
+            lock.lock();
+            try {
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = nanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        String summary() {
+            lock.lock();
+            try {
+                if (count == 0) return "sem amostras";
+                long[] sorted = Arrays.copyOf(values, count);
+                Arrays.sort(sorted);
+                return String.format(Locale.ROOT, "p50=%.1f p90=%.1f p99=%.1f max=%.1f ms (%d amostras)",
+                        millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99),
+                        sorted[count - 1] / 1e6, count);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static double millis(long[] sorted, double p) {
+            int idx = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1e6;
+        }
+    }
+
+    // Estado partilhado pelos bots do mesmo jogo, ronda a ronda
+    static final class GameProbe {
+        private final int players;
+        private final ReentrantLock lock = new ReentrantLock();
+        private int round = -1;
+        private long firstQuestionNanos;
+        private int answered;
+        private long lastAnswerNanos;
+
+        GameProbe(int players) {
+            this.players = players;
+        }
+
+        // Devolve o atraso em relação ao primeiro bot do jogo que recebeu esta pergunta (dispersão entre
+        // bots, não o tempo desde o envio no servidor)
+        long onQuestion(int r, long now) {
+            lock.lock();
+            try {
+                if (r > round) {
+                    round = r;
+                    firstQuestionNanos = now;
+                    answered = 0;
+                    lastAnswerNanos = 0;
+                }
+                return r == round ? now - firstQuestionNanos : -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onAnswer(int r, long now) {
+            lock.lock();
+            try {
+                if (r == round) {
+                    answered++;
+                    lastAnswerNanos = Math.max(lastAnswerNanos, now);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Tempo desde a última resposta da ronda até ao placar (-1 se a ronda não foi respondida por todos)
+        long onScoreboard(int r, long now) {
+            lock.lock();
+            try {
+                return r == round && answered == players ? now - lastAnswerNanos : -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final List<String> gameCodes;
+    private final int playersPerGame;
+    private final double accuracy;
+    private final ThinkTime think;
+    private final int connectRate;
+    private final boolean legacy;
+
+    private final Samples questionSpread = new Samples();
+    // Cada resposta: do envio pelo bot até ao placar seguinte que ele recebe
+    private final Samples answerToScoreboard = new Samples();
+    // Só rondas respondidas por todos: da última resposta do jogo até ao placar (o tempo do servidor a fechar a ronda)
+    private final Samples lastAnswerToScoreboard = new Samples();
+    private final AtomicInteger loggedIn = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicLong lastLoginNanos = new AtomicLong();
+    private long startNanos;
+
+    public LoadGenerator(String host, int port, List<String> gameCodes, int playersPerGame,
+                         double accuracy, ThinkTime think, int connectRate, boolean legacy) {
+        this.host = host;
+        this.port = port;
+        this.gameCodes = gameCodes;
+        this.playersPerGame = playersPerGame;
+        this.accuracy = accuracy;
+        this.think = think;
+        this.connectRate = connectRate;
+        this.legacy = legacy;
+    }
+
+    public void run() throws InterruptedException {
+        int total = gameCodes.size() * playersPerGame;
+        System.out.println("A ligar " + total + " jogadores a " + gameCodes.size() + " jogos (" + host + ":" + port
+                + ", acerto " + accuracy + ", reflexão " + think + ", " + (legacy ? "legacy" : "binário") + ")...");
+
+        List<Thread> bots = new ArrayList<>(total);
+        startNanos = System.nanoTime();
+        int n = 0;
+        for (String code : gameCodes) {
+            GameProbe probe = new GameProbe(playersPerGame);
+            for (int p = 0; p < playersPerGame; p++) {
+                String username = "bot-" + code + "-" + (p + 1);
+                Thread t = new Thread(() -> runBot(code, username, probe), username);
+                t.setDaemon(true);
+                t.start();
+                bots.add(t);
+                n++;
+                if (connectRate > 0) {
+                    // Ritmo de ligações: a ligação n só abre ao fim de n / rate segundos
+                    long due = startNanos + n * 1_000_000_000L / connectRate;
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+        }
+        for (Thread t : bots) {
+            t.join();
+        }
+        report(total);
+    }
+
+    private void runBot(String gameCode, String username, GameProbe probe) {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            Connection conn = legacy ? new LegacyConnection(socket) : new BinaryConnection(socket);
+            conn.send(new Msg(Msg.Type.LOGIN, gameCode + "|0|" + username));   // equipa 0: o servidor escolhe
+
+            int round = -1;
+            long answerSentNanos = 0;
+            while (true) {
+                Msg msg = conn.read();
+                long now = System.nanoTime();
+                switch (msg.type) {
+                    case LOGIN_OK:
+                        loggedIn.incrementAndGet();
+                        lastLoginNanos.accumulateAndGet(now, Math::max);
+                        break;
+                    case LOGIN_ERROR:
+                        rejected.incrementAndGet();
+                        System.out.println(username + ": login recusado (" + msg.content + ")");
+                        return;
+                    case NEW_QUESTION:
+                        round++;
+                        long delay = probe.onQuestion(round, now);
+                        if (delay >= 0) questionSpread.add(delay);
+                        Thread.sleep(think.nextMillis());
+                        conn.send(new Msg(Msg.Type.SEND_ANSWER, chooseOption((Question) msg.content)));
+                        answerSentNanos = System.nanoTime();
+                        probe.onAnswer(round, answerSentNanos);
+                        break;
+                    case UPDATE_SCORE:
+                        if (answerSentNanos != 0) {
+                            answerToScoreboard.add(now - answerSentNanos);
+                            answerSentNanos = 0;
+                        }
+                        long sinceLastAnswer = probe.onScoreboard(round, now);
+                        if (sinceLastAnswer >= 0) lastAnswerToScoreboard.add(sinceLastAnswer);
+                        break;
+                    case GAME_OVER:
+                        // O placar final só sai depois da pausa do fim do jogo: não conta como latência
+                        finished.incrementAndGet();
+                        return;
+                    default:
+                        break;
+                }
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println(username + ": " + e.getMessage());
+        }
+    }
+
+    // Opção certa com probabilidade 'accuracy'; senão uma das erradas (opções começam em 1)
+    private int chooseOption(Question q) {
+        int options = Math.max(1, q.getOptions().size());
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        if (options == 1 || rnd.nextDouble() < accuracy) {
+            return q.getCorrect();
+        }
+        int wrong = 1 + rnd.nextInt(options - 1);
+        return wrong >= q.getCorrect() ? wrong + 1 : wrong;
+    }
+
+    private void report(int total) {
+        double loginSeconds = (lastLoginNanos.get() - startNanos) / 1e9;
+        System.out.println("--- RESULTADOS ---");
+        System.out.printf(Locale.ROOT, "Jogadores: %d (login OK: %d, recusados: %d, erros: %d, jogos terminados: %d)%n",
+                total, loggedIn.get(), rejected.get(), failed.get(), finished.get());
+        if (loggedIn.get() > 0) {
+            System.out.printf(Locale.ROOT, "Logins: %d em %.2f s (%.0f logins/s)%n",
+                    loggedIn.get(), loginSeconds, loggedIn.get() / Math.max(loginSeconds, 1e-9));
+        }
+        System.out.println("Resposta -> placar (cada bot): " + answerToScoreboard.summary());
+        System.out.println("Última resposta da ronda -> placar (rondas completas): " + lastAnswerToScoreboard.summary());
+        System.out.println("Dispersão da entrega das perguntas (atraso para o 1º bot do jogo): " + questionSpread.summary());
+    }
+
+    private interface Connection {
+        void send(Msg msg) throws IOException;
+
+        Msg read() throws Exception;
+    }
+
+    private static final class BinaryConnection implements Connection {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        BinaryConnection(Socket socket) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            WireProtocol.clientHandshake(in, out);
+        }
+
+        @Override
+        public void send(Msg msg) throws IOException {
+            MsgFrames.write(out, msg);
+        }
+
+        @Override
+        public Msg read() throws IOException {
+            return MsgFrames.read(in);
+        }
+    }
+
+    private static final class LegacyConnection implements Connection {
+        private final ObjectInputStream in;
+        private final ObjectOutputStream out;
+
+        LegacyConnection(Socket socket) throws IOException {
+            this.out = new ObjectOutputStream(socket.getOutputStream());
+            this.in = new ObjectInputStream(socket.getInputStream());
+        }
+
+        @Override
+        public void send(Msg msg) throws IOException {
+            out.writeObject(msg);
+            out.flush();
+        }
+
+        @Override
+        public Msg read() throws Exception {
+            return (Msg) in.readObject();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.out.println("Uso: java client.LoadGenerator <IP> <PORT> <códigos,separados|@ficheiro> <jogadoresPorJogo>");
+            return;
+        }
+        List<String> codes = new ArrayList<>();
+        String spec = args[2];
+        if (spec.startsWith("@")) {
+            for (String line : Files.readAllLines(Paths.get(spec.substring(1)), StandardCharsets.UTF_8)) {
+                for (String code : line.trim().split("[,\\s]+")) {
+                    if (!code.isEmpty()) codes.add(code);
+                }
+            }
+        } else {
+            codes.addAll(Arrays.asList(spec.split(",")));
+        }
+
+        double accuracy = Double.parseDouble(System.getProperty("iskahoot.load.accuracy", "0.7"));
+        ThinkTime think = ThinkTime.parse(System.getProperty("iskahoot.load.think", "uniform:200:2000"));
+        int rate = Integer.getInteger("iskahoot.load.rate", 0);
+        boolean legacy = "legacy".equalsIgnoreCase(System.getProperty("iskahoot.load.protocol", "binary"));
+
+        new LoadGenerator(args[0], Integer.parseInt(args[1]), codes, Integer.parseInt(args[3]),
+                accuracy, think, rate, legacy).run();
+    }
+}
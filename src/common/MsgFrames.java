@@ -0,0 +1,310 @@
+package common;
+
+import model.Question;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Codec binário do protocolo: cada mensagem vai como [int tamanho][byte tipo][byte tag][conteúdo].
+// A tag TAG_SCORE_UPDATE só é enviada a clientes que negociaram a versão 2 (WireProtocol.VERSION_SCORE_UPDATE).
+public final class MsgFrames {
+    public static final int HEADER_SIZE = 4;
+    public static final int MAX_FRAME_SIZE = 1 << 20;   // 1 MB
+
+    // Tags do conteúdo (Msg.content)
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INT = 2;
+    private static final byte TAG_QUESTION = 3;
+    private static final byte TAG_SCORE_UPDATE = 4;
+
+    // Flags do ScoreUpdate
+    private static final int SCORE_FULL = 1;
+    private static final int SCORE_RANKING = 2;
+
+    // Códigos fixos no fio: não depender da ordem do enum Msg.Type
+    private static final Msg.Type[] TYPES_BY_CODE = {
+            null,
+            Msg.Type.LOGIN,
+            Msg.Type.LOGIN_OK,
+            Msg.Type.LOGIN_ERROR,
+            Msg.Type.NEW_QUESTION,
+            Msg.Type.SEND_ANSWER,
+            Msg.Type.UPDATE_SCORE,
+            Msg.Type.GAME_OVER
+    };
+
+    private MsgFrames() {}
+
+    private static int typeCode(Msg.Type type) {
+        for (int i = 1; i < TYPES_BY_CODE.length; i++) {
+            if (TYPES_BY_CODE[i] == type) return i;
+        }
+        throw new IllegalArgumentException("Tipo sem código no protocolo binário: " + type);
+    }
+
+    // Devolve a frame completa (cabeçalho incluído)
+    public static byte[] encode(Msg msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0);   // reservado para o tamanho
+        data.writeByte(typeCode(msg.type));
+        writeContent(data, msg.content);
+        data.flush();
+
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - HEADER_SIZE;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    public static Msg decode(byte[] payload, int offset, int length) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload, offset, length));
+        int code = data.readUnsignedByte();
+        if (code == 0 || code >= TYPES_BY_CODE.length) {
+            throw new IOException("Tipo de mensagem desconhecido: " + code);
+        }
+        return new Msg(TYPES_BY_CODE[code], readContent(data));
+    }
+
+    public static void write(DataOutputStream out, Msg msg) throws IOException {
+        out.write(encode(msg));
+        out.flush();
+    }
+
+    public static Msg read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Tamanho de frame inválido: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return decode(payload, 0, length);
+    }
+
+    private static void writeContent(DataOutput out, Object content) throws IOException {
+        if (content == null) {
+            out.writeByte(TAG_NULL);
+        } else if (content instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) content);
+        } else if (content instanceof Integer) {
+            out.writeByte(TAG_INT);
+            writeVarInt(out, (Integer) content);
+        } else if (content instanceof Question) {
+            Question q = (Question) content;
+            out.writeByte(TAG_QUESTION);
+            writeString(out, q.getQuestion());
+            writeVarInt(out, q.getPoints());
+            writeVarInt(out, q.getCorrect());
+            List<String> options = q.getOptions();
+            writeVarInt(out, options.size());
+            for (String option : options) {
+                writeString(out, option);
+            }
+        } else if (content instanceof ScoreUpdate) {
+            out.writeByte(TAG_SCORE_UPDATE);
+            ScoreUpdate u = (ScoreUpdate) content;
+            writeScoreUpdate(out, u);
+            if (u.hasRanking()) {
+                writeVarInt(out, u.getPlayerRank());
+                writeVarInt(out, u.getPlayerScore());
+                writeVarInt(out, u.getRankedPlayers());
+            }
+        } else {
+            throw new IOException("Conteúdo não suportado no protocolo binário: " + content.getClass().getName());
+        }
+    }
+
+    // Placar e top (sem a posição do jogador, que são sempre os últimos campos da frame)
+    private static void writeScoreUpdate(DataOutput out, ScoreUpdate u) throws IOException {
+        writeVarInt(out, u.getSequence());
+        writeVarInt(out, u.getQuestionNumber());
+        writeVarInt(out, u.getTotalQuestions());
+        writeVarInt(out, u.getNumTeams());
+        out.writeByte((u.isFull() ? SCORE_FULL : 0) | (u.hasRanking() ? SCORE_RANKING : 0));
+        writeVarInt(out, u.getChangedCount());
+        for (int i = 0; i < u.getChangedCount(); i++) {
+            writeVarInt(out, u.getTeamId(i));
+            writeVarInt(out, u.getScore(i));
+        }
+        if (u.hasRanking()) {
+            writeVarInt(out, u.getTopCount());
+            for (int i = 0; i < u.getTopCount(); i++) {
+                writeString(out, u.getTopName(i));
+                writeVarInt(out, u.getTopScore(i));
+            }
+        }
+    }
+
+    // Início da frame de um placar com classificação, até ao top inclusive (sem tamanho no cabeçalho).
+    // O placar e o top são iguais para todos os jogadores de um jogo: codificam-se uma vez e cada jogador
+    // só acrescenta a sua posição com withPlayerRank.
+    public static byte[] encodeRankingPrefix(Msg.Type type, ScoreUpdate u) throws IOException {
+        if (!u.hasRanking()) {
+            throw new IllegalArgumentException("Placar sem classificação");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0);   // preenchido em withPlayerRank
+        data.writeByte(typeCode(type));
+        data.writeByte(TAG_SCORE_UPDATE);
+        writeScoreUpdate(data, u);
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    // Frame completa: o prefixo de encodeRankingPrefix seguido da posição de um jogador.
+    // Igual byte a byte a encode() do mesmo placar com essa posição.
+    public static byte[] withPlayerRank(byte[] prefix, int playerRank, int playerScore, int rankedPlayers) {
+        byte[] frame = new byte[prefix.length + varIntSize(playerRank) + varIntSize(playerScore) + varIntSize(rankedPlayers)];
+        System.arraycopy(prefix, 0, frame, 0, prefix.length);
+        int pos = putVarInt(frame, prefix.length, playerRank);
+        pos = putVarInt(frame, pos, playerScore);
+        putVarInt(frame, pos, rankedPlayers);
+        int length = frame.length - HEADER_SIZE;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    private static Object readContent(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_INT:
+                return readVarInt(in);
+            case TAG_QUESTION:
+                String text = readString(in);
+                int points = readVarInt(in);
+                int correct = readVarInt(in);
+                int numOptions = readLength(in);
+                List<String> options = new ArrayList<>(numOptions);
+                for (int i = 0; i < numOptions; i++) {
+                    options.add(readString(in));
+                }
+                return new Question(text, points, correct, options);
+            case TAG_SCORE_UPDATE:
+                return readScoreUpdate(in);
+            default:
+                throw new IOException("Tag de conteúdo desconhecida: " + tag);
+        }
+    }
+
+    private static ScoreUpdate readScoreUpdate(DataInput in) throws IOException {
+        int sequence = readVarInt(in);
+        int questionNumber = readVarInt(in);
+        int totalQuestions = readVarInt(in);
+        int numTeams = readLength(in);
+        int flags = in.readUnsignedByte();
+        int count = readLength(in);
+        if (count > numTeams) {
+            throw new IOException("Placar inválido: " + count + " equipas em " + numTeams);
+        }
+        int[] teamIds = new int[count];
+        int[] scores = new int[count];
+        for (int i = 0; i < count; i++) {
+            teamIds[i] = readVarInt(in);
+            if (teamIds[i] < 0 || teamIds[i] >= numTeams) {
+                throw new IOException("Equipa inválida no placar: " + teamIds[i]);
+            }
+            scores[i] = readVarInt(in);
+        }
+        boolean full = (flags & SCORE_FULL) != 0;
+        if ((flags & SCORE_RANKING) == 0) {
+            return new ScoreUpdate(sequence, questionNumber, totalQuestions, numTeams, full, teamIds, scores);
+        }
+
+        int topCount = readLength(in);
+        String[] topNames = new String[topCount];
+        int[] topScores = new int[topCount];
+        for (int i = 0; i < topCount; i++) {
+            topNames[i] = readString(in);
+            topScores[i] = readVarInt(in);
+        }
+        int playerRank = readVarInt(in);
+        int playerScore = readVarInt(in);
+        int rankedPlayers = readVarInt(in);
+        return new ScoreUpdate(sequence, questionNumber, totalQuestions, numTeams, full, teamIds, scores,
+                topNames, topScores, playerRank, playerScore, rankedPlayers);
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] utf8 = new byte[readLength(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Tamanho inválido: " + length);
+        }
+        return length;
+    }
+
+    // Inteiros em varint (zigzag), 1 byte para valores pequenos
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int varIntSize(int value) {
+        int v = (value << 1) ^ (value >> 31);
+        int size = 1;
+        while ((v & ~0x7F) != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    // Como writeVarInt, mas num array; devolve a posição seguinte
+    private static int putVarInt(byte[] buf, int pos, int value) {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Varint inválido");
+    }
+}
@@ -0,0 +1,203 @@
+package common;
+
+import java.util.Arrays;
+
+// Conteúdo de UPDATE_SCORE/GAME_OVER (protocolo binário v2): só as equipas cujos pontos mudaram desde o
+// placar anterior, com um número de sequência. O cliente guarda o placar e aplica os deltas por ordem.
+// Os pontos são absolutos (não incrementos), por isso dois deltas juntam-se sem perder nada.
+// Opcionalmente leva a classificação individual: o top do jogo e a posição de quem recebe.
+// Nunca vai em serialização Java: os clientes antigos recebem o placar em HTML (ver Server.scoreMessage).
+public class ScoreUpdate {
+    private final int sequence;
+    private final int questionNumber;   // pergunta a que o placar se refere (1-based)
+    private final int totalQuestions;
+    private final int numTeams;
+    private final boolean full;         // true: traz todas as equipas (substitui o placar do cliente)
+    private final int[] teamIds;
+    private final int[] scores;
+    // Classificação individual (topNames == null: não incluída)
+    private final String[] topNames;
+    private final int[] topScores;
+    private final int playerRank;       // 1 = primeiro, 0 = sem posição
+    private final int playerScore;
+    private final int rankedPlayers;
+
+    public ScoreUpdate(int sequence, int questionNumber, int totalQuestions, int numTeams, boolean full, int[] teamIds, int[] scores) {
+        this(sequence, questionNumber, totalQuestions, numTeams, full, teamIds, scores, null, null, 0, 0, 0);
+    }
+
+    public ScoreUpdate(int sequence, int questionNumber, int totalQuestions, int numTeams, boolean full, int[] teamIds, int[] scores,
+                       String[] topNames, int[] topScores, int playerRank, int playerScore, int rankedPlayers) {
+        this.sequence = sequence;
+        this.questionNumber = questionNumber;
+        this.totalQuestions = totalQuestions;
+        this.numTeams = numTeams;
+        this.full = full;
+        this.teamIds = teamIds;
+        this.scores = scores;
+        this.topNames = topNames;
+        this.topScores = topScores;
+        this.playerRank = playerRank;
+        this.playerScore = playerScore;
+        this.rankedPlayers = rankedPlayers;
+    }
+
+    // O mesmo placar de equipas com a classificação de um jogador (o top é partilhado, não é copiado)
+    public ScoreUpdate withRanking(String[] topNames, int[] topScores, int playerRank, int playerScore, int rankedPlayers) {
+        return new ScoreUpdate(sequence, questionNumber, totalQuestions, numTeams, full, teamIds, scores,
+                topNames, topScores, playerRank, playerScore, rankedPlayers);
+    }
+
+    // Equipas em que current difere de previous
+    public static ScoreUpdate delta(int sequence, int questionNumber, int totalQuestions, int[] previous, int[] current) {
+        int[] ids = new int[current.length];
+        int[] values = new int[current.length];
+        int n = 0;
+        for (int t = 0; t < current.length; t++) {
+            if (t >= previous.length || previous[t] != current[t]) {
+                ids[n] = t;
+                values[n++] = current[t];
+            }
+        }
+        return new ScoreUpdate(sequence, questionNumber, totalQuestions, current.length, false,
+                Arrays.copyOf(ids, n), Arrays.copyOf(values, n));
+    }
+
+    public static ScoreUpdate full(int sequence, int questionNumber, int totalQuestions, int[] current) {
+        int[] ids = new int[current.length];
+        for (int t = 0; t < ids.length; t++) {
+            ids[t] = t;
+        }
+        return new ScoreUpdate(sequence, questionNumber, totalQuestions, current.length, true, ids, current.clone());
+    }
+
+    // Um delta que substitui outro ainda por enviar: as equipas de ambos, com os valores do mais recente
+    public static ScoreUpdate merge(ScoreUpdate older, ScoreUpdate newer) {
+        if (newer.full) return newer;
+
+        int numTeams = Math.max(older.numTeams, newer.numTeams);
+        int[] board = new int[numTeams];
+        boolean[] present = new boolean[numTeams];
+        for (int i = 0; i < older.teamIds.length; i++) {
+            board[older.teamIds[i]] = older.scores[i];
+            present[older.teamIds[i]] = true;
+        }
+        for (int i = 0; i < newer.teamIds.length; i++) {
+            board[newer.teamIds[i]] = newer.scores[i];
+            present[newer.teamIds[i]] = true;
+        }
+
+        int n = 0;
+        for (boolean p : present) {
+            if (p) n++;
+        }
+        int[] ids = new int[n];
+        int[] values = new int[n];
+        n = 0;
+        for (int t = 0; t < numTeams; t++) {
+            if (present[t]) {
+                ids[n] = t;
+                values[n++] = board[t];
+            }
+        }
+        return new ScoreUpdate(newer.sequence, newer.questionNumber, newer.totalQuestions, numTeams, older.full, ids, values,
+                newer.topNames, newer.topScores, newer.playerRank, newer.playerScore, newer.rankedPlayers);
+    }
+
+    // Aplica ao placar do cliente; devolve o placar (novo array se o número de equipas mudou)
+    public int[] applyTo(int[] board) {
+        if (full || board == null || board.length != numTeams) {
+            int[] resized = new int[numTeams];
+            if (!full && board != null) {
+                System.arraycopy(board, 0, resized, 0, Math.min(board.length, numTeams));
+            }
+            board = resized;
+        }
+        for (int i = 0; i < teamIds.length; i++) {
+            board[teamIds[i]] = scores[i];
+        }
+        return board;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getQuestionNumber() {
+        return questionNumber;
+    }
+
+    public int getTotalQuestions() {
+        return totalQuestions;
+    }
+
+    public int getNumTeams() {
+        return numTeams;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public int getChangedCount() {
+        return teamIds.length;
+    }
+
+    public int getTeamId(int i) {
+        return teamIds[i];
+    }
+
+    public int getScore(int i) {
+        return scores[i];
+    }
+
+    public boolean hasRanking() {
+        return topNames != null;
+    }
+
+    public int getTopCount() {
+        return topNames != null ? topNames.length : 0;
+    }
+
+    public String getTopName(int i) {
+        return topNames[i];
+    }
+
+    public int getTopScore(int i) {
+        return topScores[i];
+    }
+
+    public int getPlayerRank() {
+        return playerRank;
+    }
+
+    public int getPlayerScore() {
+        return playerScore;
+    }
+
+    public int getRankedPlayers() {
+        return rankedPlayers;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ScoreUpdate{seq=").append(sequence)
+                .append(", pergunta=").append(questionNumber).append('/').append(totalQuestions)
+                .append(full ? ", completo" : ", delta").append(", equipas=[");
+        for (int i = 0; i < teamIds.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(teamIds[i] + 1).append('=').append(scores[i]);
+        }
+        sb.append(']');
+        if (topNames != null) {
+            sb.append(", top=[");
+            for (int i = 0; i < topNames.length; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(topNames[i]).append('=').append(topScores[i]);
+            }
+            sb.append("], posição=").append(playerRank).append('/').append(rankedPlayers)
+                    .append(" (").append(playerScore).append(" pontos)");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,62 @@
+package common;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Negociação do protocolo no início da ligação.
+// Cliente binário: envia HELLO ('I','K','B',versão) e o servidor responde com a versão escolhida (0 = recusado).
+// Cliente antigo: começa pelo cabeçalho do ObjectOutputStream (0xACED) e continua em serialização Java.
+public final class WireProtocol {
+    public static final int HELLO_SIZE = 4;
+    public static final int MIN_VERSION = 1;
+    public static final int MAX_VERSION = 2;
+    // v2: UPDATE_SCORE/GAME_OVER levam um ScoreUpdate (só as equipas que mudaram) em vez do placar em HTML
+    public static final int VERSION_SCORE_UPDATE = 2;
+    public static final int VERSION_REJECTED = 0;
+
+    private static final byte[] MAGIC = {'I', 'K', 'B'};
+    private static final int STREAM_MAGIC = 0xACED;     // java.io.ObjectStreamConstants.STREAM_MAGIC
+
+    public enum Protocol {
+        LEGACY,     // ObjectOutputStream/ObjectInputStream
+        BINARY      // MsgFrames
+    }
+
+    private WireProtocol() {}
+
+    public static boolean isLegacyHeader(int b0, int b1) {
+        return ((b0 & 0xFF) << 8 | (b1 & 0xFF)) == STREAM_MAGIC;
+    }
+
+    public static boolean isHello(byte[] b, int offset) {
+        return b[offset] == MAGIC[0] && b[offset + 1] == MAGIC[1] && b[offset + 2] == MAGIC[2];
+    }
+
+    public static byte[] hello(int version) {
+        return new byte[]{MAGIC[0], MAGIC[1], MAGIC[2], (byte) version};
+    }
+
+    // Versão a usar com um cliente que suporta até clientVersion
+    public static int negotiate(int clientVersion) {
+        int version = Math.min(clientVersion, MAX_VERSION);
+        return version >= MIN_VERSION ? version : VERSION_REJECTED;
+    }
+
+    // Lado do cliente: envia HELLO e devolve a versão aceite pelo servidor
+    public static int clientHandshake(DataInputStream in, DataOutputStream out) throws IOException {
+        out.write(hello(MAX_VERSION));
+        out.flush();
+
+        byte[] reply = new byte[HELLO_SIZE];
+        in.readFully(reply);
+        if (!isHello(reply, 0)) {
+            throw new IOException("Resposta de negociação inválida do servidor");
+        }
+        int version = reply[3] & 0xFF;
+        if (version == VERSION_REJECTED) {
+            throw new IOException("O servidor não suporta nenhuma versão do protocolo binário até " + MAX_VERSION);
+        }
+        return version;
+    }
+}
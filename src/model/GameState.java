@@ -1,23 +1,19 @@
 package model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 public class GameState implements Serializable {
     private Quiz quiz;
-    private int currentIndex;
-    private List<Integer> teamScores;
+    private volatile int currentIndex;
+    // Pontos por equipa sem lock: cada resposta certa é um getAndAdd na posição da equipa
+    private final AtomicIntegerArray teamScores;
 
     public GameState(Quiz quiz, int numTeams) {
         this.quiz = quiz;
         this.currentIndex = 0;
-        this.teamScores = new ArrayList<>();
-
-        // Dar reset aos pontos das equipas
-        for (int i = 0; i < numTeams; i++) {
-            teamScores.add(0);
-        }
+        // Começa tudo a 0
+        this.teamScores = new AtomicIntegerArray(numTeams);
     }
 
     public Question getCurrentQuestion() {
@@ -37,12 +33,23 @@ public class GameState implements Serializable {
         return false;
     }
 
-    public void addPointsToTeam(int teamId, int points) {
-        teamScores.set(teamId, teamScores.get(teamId) + points);
+    // Seguro a partir de qualquer thread, sem sincronização externa. Devolve os pontos da equipa depois de somar.
+    public int addPointsToTeam(int teamId, int points) {
+        return teamScores.addAndGet(teamId, points);
     }
 
-    public List<Integer> getTeamScores() {
-        return teamScores;
+    public int getNumTeams() {
+        return teamScores.length();
+    }
+
+    // Cópia do placar, equipa a equipa (cada valor é um total já somado, nunca a meio).
+    // Chamado quando a ronda fechou; pontos que ainda cheguem entram no placar seguinte.
+    public int[] snapshotTeamScores() {
+        int[] copy = new int[teamScores.length()];
+        for (int t = 0; t < copy.length; t++) {
+            copy[t] = teamScores.get(t);
+        }
+        return copy;
     }
 
     public int getCurrentIndex() {
@@ -9,6 +9,11 @@ public class Quiz implements Serializable {
 
     public Quiz() {}
 
+    public Quiz(String name, List<Question> questions) {
+        this.name = name;
+        this.questions = questions;
+    }
+
     public String getName() {
         return name;
     }
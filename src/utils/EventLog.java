@@ -0,0 +1,291 @@
+package utils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Log assíncrono do servidor: quem regista só preenche uma posição de um buffer circular pré-alocado
+// (modelo + até 4 argumentos, sem formatar nada); uma thread de fundo formata e escreve na consola ou
+// num ficheiro. Assim as threads das respostas nunca disputam o System.out.
+// Se o buffer encher, os eventos novos são descartados e contados (nunca bloqueia quem regista).
+// Sem eventos a thread de fundo dorme; quem regista só a acorda se ela avisou que ia dormir.
+//
+// Propriedades: iskahoot.log.level (DEBUG, INFO, WARN, ERROR), iskahoot.log.file (omissão: consola),
+//               iskahoot.log.buffer (nº de eventos, potência de 2)
+public final class EventLog {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int MAX_ARGS = 4;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    // Uma posição do buffer, reutilizada. 'published' diz a que sequência pertence o conteúdo atual.
+    private static final class Event {
+        volatile long published = -1;
+        long sequence;          // sequência reservada, publicada no fim do preenchimento
+        Level level;
+        long timeMillis;
+        String threadName;
+        String template;
+        final Object[] args = new Object[MAX_ARGS];
+        final long[] numbers = new long[MAX_ARGS];
+        int argCount;
+        int firstNumber;        // argumentos a partir deste índice estão em numbers
+    }
+
+    private static final EventLog INSTANCE = fromSystemProperties();
+
+    private final Event[] ring;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();    // próxima sequência a atribuir
+    private volatile long consumed = 0;                       // próxima sequência a escrever
+    private final LongAdder dropped = new LongAdder();
+    private final Level minLevel;
+    private final Writer out;
+    private final boolean detailed;     // no ficheiro: data, nível e thread antes da mensagem
+    private final Thread writer;
+    private volatile boolean idle = false;      // o escritor vai dormir (ou já dorme) à espera de eventos
+    private volatile boolean stopping = false;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private EventLog(Level minLevel, int capacity, Writer out, boolean detailed) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new Event[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Event();
+        }
+        this.mask = size - 1;
+        this.minLevel = minLevel;
+        this.out = out;
+        this.detailed = detailed;
+
+        this.writer = new Thread(this::writeLoop, "event-log");
+        writer.setDaemon(true);
+        writer.start();
+        // Escrever o que ficou no buffer quando a JVM termina
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "event-log-flush"));
+    }
+
+    private static EventLog fromSystemProperties() {
+        Level level = Level.valueOf(System.getProperty("iskahoot.log.level", "info").toUpperCase());
+        int capacity = Integer.getInteger("iskahoot.log.buffer", 8192);
+        String file = System.getProperty("iskahoot.log.file");
+        Writer out;
+        boolean detailed = false;
+        if (file != null && !file.isEmpty()) {
+            try {
+                out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+                detailed = true;
+            } catch (IOException e) {
+                System.err.println("Não foi possível abrir o ficheiro de log " + file + ", a usar a consola: " + e.getMessage());
+                out = consoleWriter();
+            }
+        } else {
+            out = consoleWriter();
+        }
+        return new EventLog(level, capacity, out, detailed);
+    }
+
+    private static Writer consoleWriter() {
+        return new OutputStreamWriter(System.out);
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= INSTANCE.minLevel.ordinal();
+    }
+
+    // Eventos descartados por o buffer estar cheio
+    public static long getDropped() {
+        return INSTANCE.dropped.sum();
+    }
+
+    // Um método por número de argumentos: sem arrays de varargs no caminho quente.
+    // O modelo usa {} para cada argumento, ex: debug("Jogo {} | {} errou.", gameId, username)
+
+    public static void debug(String template) { INSTANCE.log(Level.DEBUG, template, 0, null, null, null, null); }
+    public static void debug(String template, Object a) { INSTANCE.log(Level.DEBUG, template, 1, a, null, null, null); }
+    public static void debug(String template, Object a, Object b) { INSTANCE.log(Level.DEBUG, template, 2, a, b, null, null); }
+    public static void debug(String template, Object a, Object b, Object c) { INSTANCE.log(Level.DEBUG, template, 3, a, b, c, null); }
+    public static void debug(String template, Object a, Object b, Object c, Object d) { INSTANCE.log(Level.DEBUG, template, 4, a, b, c, d); }
+
+    public static void info(String template) { INSTANCE.log(Level.INFO, template, 0, null, null, null, null); }
+    public static void info(String template, Object a) { INSTANCE.log(Level.INFO, template, 1, a, null, null, null); }
+    public static void info(String template, Object a, Object b) { INSTANCE.log(Level.INFO, template, 2, a, b, null, null); }
+    public static void info(String template, Object a, Object b, Object c) { INSTANCE.log(Level.INFO, template, 3, a, b, c, null); }
+    public static void info(String template, Object a, Object b, Object c, Object d) { INSTANCE.log(Level.INFO, template, 4, a, b, c, d); }
+
+    public static void warn(String template) { INSTANCE.log(Level.WARN, template, 0, null, null, null, null); }
+    public static void warn(String template, Object a) { INSTANCE.log(Level.WARN, template, 1, a, null, null, null); }
+    public static void warn(String template, Object a, Object b) { INSTANCE.log(Level.WARN, template, 2, a, b, null, null); }
+    public static void warn(String template, Object a, Object b, Object c) { INSTANCE.log(Level.WARN, template, 3, a, b, c, null); }
+
+    public static void error(String template) { INSTANCE.log(Level.ERROR, template, 0, null, null, null, null); }
+    public static void error(String template, Object a) { INSTANCE.log(Level.ERROR, template, 1, a, null, null, null); }
+    public static void error(String template, Object a, Object b) { INSTANCE.log(Level.ERROR, template, 2, a, b, null, null); }
+
+    // Números no fim da lista de argumentos: guardados como long, sem um Integer por evento.
+    // Um número antes de um objeto (ex: equipa, jogo) não tem versão própria: ponha os números no fim.
+
+    public static void debug(String template, long n) { INSTANCE.log(Level.DEBUG, template, 1, 0, null, null, n, 0); }
+    public static void debug(String template, Object a, long n) { INSTANCE.log(Level.DEBUG, template, 2, 1, a, null, n, 0); }
+    public static void debug(String template, Object a, long n, long m) { INSTANCE.log(Level.DEBUG, template, 3, 1, a, null, n, m); }
+    public static void debug(String template, Object a, Object b, long n) { INSTANCE.log(Level.DEBUG, template, 3, 2, a, b, n, 0); }
+    public static void debug(String template, Object a, Object b, long n, long m) { INSTANCE.log(Level.DEBUG, template, 4, 2, a, b, n, m); }
+
+    public static void info(String template, long n) { INSTANCE.log(Level.INFO, template, 1, 0, null, null, n, 0); }
+    public static void info(String template, Object a, long n) { INSTANCE.log(Level.INFO, template, 2, 1, a, null, n, 0); }
+    public static void info(String template, Object a, long n, long m) { INSTANCE.log(Level.INFO, template, 3, 1, a, null, n, m); }
+    public static void info(String template, Object a, Object b, long n) { INSTANCE.log(Level.INFO, template, 3, 2, a, b, n, 0); }
+    public static void info(String template, Object a, Object b, long n, long m) { INSTANCE.log(Level.INFO, template, 4, 2, a, b, n, m); }
+
+    public static void warn(String template, long n) { INSTANCE.log(Level.WARN, template, 1, 0, null, null, n, 0); }
+    public static void warn(String template, Object a, long n) { INSTANCE.log(Level.WARN, template, 2, 1, a, null, n, 0); }
+    public static void warn(String template, Object a, long n, long m) { INSTANCE.log(Level.WARN, template, 3, 1, a, null, n, m); }
+    public static void warn(String template, Object a, Object b, long n) { INSTANCE.log(Level.WARN, template, 3, 2, a, b, n, 0); }
+
+    private void log(Level level, String template, int argCount, Object a, Object b, Object c, Object d) {
+        Event e = claim(level, template);
+        if (e == null) return;
+        e.args[0] = a;
+        e.args[1] = b;
+        e.args[2] = c;
+        e.args[3] = d;
+        e.argCount = argCount;
+        e.firstNumber = argCount;
+        publish(e);
+    }
+
+    // Os primeiros 'objects' argumentos são a e b; os restantes são n e m
+    private void log(Level level, String template, int argCount, int objects, Object a, Object b, long n, long m) {
+        Event e = claim(level, template);
+        if (e == null) return;
+        e.args[0] = a;
+        e.args[1] = b;
+        e.numbers[objects] = n;
+        if (objects + 1 < MAX_ARGS) e.numbers[objects + 1] = m;
+        e.argCount = argCount;
+        e.firstNumber = objects;
+        publish(e);
+    }
+
+    // Reserva a posição seguinte do buffer (null se o nível está desligado ou o buffer está cheio)
+    private Event claim(Level level, String template) {
+        if (level.ordinal() < minLevel.ordinal()) return null;
+
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= ring.length) {
+                dropped.increment();
+                return null;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        Event e = ring[(int) seq & mask];
+        e.level = level;
+        e.timeMillis = System.currentTimeMillis();
+        e.threadName = Thread.currentThread().getName();
+        e.template = template;
+        e.sequence = seq;
+        return e;
+    }
+
+    private void publish(Event e) {
+        e.published = e.sequence;       // escrita volatile: a partir daqui o escritor pode ler o evento
+        // Escritor a dormir (ou prestes a dormir): acorda-o. Com o idle volatile, ou ele vê o evento
+        // antes de dormir, ou nós vemos o idle e fazemos unpark.
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void writeLoop() {
+        long reportedDrops = 0;
+        while (true) {
+            boolean wrote = false;
+            long seq = consumed;
+            Event e;
+            while ((e = ring[(int) seq & mask]).published == seq) {
+                format(e);
+                e.template = null;
+                e.args[0] = e.args[1] = e.args[2] = e.args[3] = null;
+                consumed = ++seq;
+                write();
+                wrote = true;
+            }
+
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                line.setLength(0);
+                line.append("Log: ").append(drops - reportedDrops).append(" eventos descartados (buffer cheio)");
+                write();
+                reportedDrops = drops;
+                wrote = true;
+            }
+
+            if (wrote) {
+                try {
+                    out.flush();
+                } catch (IOException ignored) {}
+            } else if (stopping) {
+                return;
+            } else {
+                idle = true;
+                // Volta a ver depois de avisar: um evento publicado entretanto não fica à espera
+                if (ring[(int) consumed & mask].published != consumed && !stopping) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    private void format(Event e) {
+        line.setLength(0);
+        if (detailed) {
+            TIME.formatTo(Instant.ofEpochMilli(e.timeMillis), line);
+            line.append(' ').append(e.level).append(" [").append(e.threadName).append("] ");
+        } else if (e.level.ordinal() >= Level.WARN.ordinal()) {
+            line.append(e.level).append(": ");
+        }
+
+        String t = e.template;
+        int arg = 0;
+        int from = 0;
+        int at;
+        while (arg < e.argCount && (at = t.indexOf("{}", from)) >= 0) {
+            line.append(t, from, at);
+            if (arg >= e.firstNumber) {
+                line.append(e.numbers[arg]);
+            } else {
+                line.append(e.args[arg]);
+            }
+            arg++;
+            from = at + 2;
+        }
+        line.append(t, from, t.length());
+    }
+
+    private void write() {
+        try {
+            out.append(line).append(System.lineSeparator());
+        } catch (IOException ignored) {}
+    }
+
+    private void shutdown() {
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException ignored) {}
+    }
+}
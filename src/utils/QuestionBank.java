@@ -0,0 +1,360 @@
+package utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import model.Question;
+import model.Quiz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Banco de perguntas indexado. O JSON é lido em streaming (JsonReader) e cada pergunta é copiada para um
+// ficheiro binário compacto; em memória ficam só os nomes dos quizzes e a posição de cada pergunta.
+// As perguntas são lidas do ficheiro quando o jogo precisa delas e ficam numa cache LRU limitada,
+// por isso o arranque e o heap não crescem com o tamanho do banco.
+//
+// Formato do banco (.bank):
+//   [int MAGIC][int VERSION] [pergunta]... [índice] [long posição do índice]
+//   pergunta = [int tamanho][string texto][int pontos][int correta][int nº opções][string opção]...
+//   índice   = [int nº quizzes] ([string nome][int nº perguntas][long posição]...)...
+//   string   = [int nº bytes][UTF-8]
+public class QuestionBank implements AutoCloseable {
+    private static final int MAGIC = 0x494B5142;   // "IKQB"
+    private static final int VERSION = 1;
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final FileChannel channel;
+    private final File temporaryFile;     // banco compilado a partir do JSON (apagado no close), ou null
+    private final Map<String, long[]> offsetsByQuiz = new LinkedHashMap<>();
+    private final Map<Long, Question> cache;
+    private final ReentrantLock cacheLock = new ReentrantLock();
+
+    private QuestionBank(File bankFile, boolean temporary, int cacheSize) throws IOException {
+        this.channel = FileChannel.open(bankFile.toPath(), StandardOpenOption.READ);
+        this.temporaryFile = temporary ? bankFile : null;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Question> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        readIndex();
+    }
+
+    // Abre um banco já compilado (.bank) ou compila o JSON para um ficheiro temporário
+    public static QuestionBank open(String path, int cacheSize) throws IOException {
+        if (path.endsWith(".bank")) {
+            return new QuestionBank(new File(path), false, cacheSize);
+        }
+        File bank = File.createTempFile("iskahoot-", ".bank");
+        bank.deleteOnExit();
+        compile(path, bank.getPath());
+        return new QuestionBank(bank, true, cacheSize);
+    }
+
+    // Converte o JSON ({"quizzes": [{"name": ..., "questions": [...]}]}) num banco binário
+    public static void compile(String jsonPath, String bankPath) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(jsonPath), StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(in);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bankPath), 1 << 16))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            List<String> names = new ArrayList<>();
+            List<long[]> offsets = new ArrayList<>();
+
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("quizzes")) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginArray();
+                while (json.hasNext()) {
+                    readQuiz(json, out, names, offsets);
+                }
+                json.endArray();
+            }
+            json.endObject();
+
+            long indexPosition = out.size();
+            out.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                writeString(out, names.get(i));
+                long[] quizOffsets = offsets.get(i);
+                out.writeInt(quizOffsets.length);
+                for (long offset : quizOffsets) {
+                    out.writeLong(offset);
+                }
+            }
+            out.writeLong(indexPosition);
+        }
+    }
+
+    private static void readQuiz(JsonReader json, DataOutputStream out, List<String> names, List<long[]> offsets) throws IOException {
+        String name = "Quiz " + (names.size() + 1);
+        long[] quizOffsets = new long[16];
+        int count = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "name":
+                    name = json.nextString();
+                    break;
+                case "questions":
+                    json.beginArray();
+                    while (json.hasNext()) {
+                        if (count == quizOffsets.length) {
+                            quizOffsets = Arrays.copyOf(quizOffsets, count * 2);
+                        }
+                        quizOffsets[count++] = out.size();
+                        writeQuestion(json, out);
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        checkUniqueName(names, name);
+        names.add(name);
+        offsets.add(Arrays.copyOf(quizOffsets, count));
+    }
+
+    // Uma pergunta do JSON vai direta para o ficheiro (sem criar Question)
+    private static void writeQuestion(JsonReader json, DataOutputStream out) throws IOException {
+        String text = "";
+        int points = 0;
+        int correct = 0;
+        List<String> options = new ArrayList<>(4);
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "question":
+                    text = json.nextString();
+                    break;
+                case "points":
+                    points = json.nextInt();
+                    break;
+                case "correct":
+                    correct = json.nextInt();
+                    break;
+                case "options":
+                    json.beginArray();
+                    while (json.peek() != JsonToken.END_ARRAY) {
+                        options.add(json.nextString());
+                    }
+                    json.endArray();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        int size = 4 + textBytes.length + 12;
+        List<byte[]> optionBytes = new ArrayList<>(options.size());
+        for (String option : options) {
+            byte[] b = option.getBytes(StandardCharsets.UTF_8);
+            optionBytes.add(b);
+            size += 4 + b.length;
+        }
+
+        out.writeInt(size);
+        out.writeInt(textBytes.length);
+        out.write(textBytes);
+        out.writeInt(points);
+        out.writeInt(correct);
+        out.writeInt(optionBytes.size());
+        for (byte[] b : optionBytes) {
+            out.writeInt(b.length);
+            out.write(b);
+        }
+    }
+
+    private void readIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < 8 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Ficheiro de perguntas inválido");
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        channel.read(trailer, channel.size() - 8);
+        trailer.flip();
+        long indexPosition = trailer.getLong();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(indexPosition)), 1 << 16));
+        int numQuizzes = in.readInt();
+        for (int q = 0; q < numQuizzes; q++) {
+            String name = readString(in);
+            long[] offsets = new long[in.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readLong();
+            }
+            checkUniqueName(offsetsByQuiz.keySet(), name);
+            offsetsByQuiz.put(name, offsets);
+        }
+    }
+
+    // Os quizzes são escolhidos pelo nome sem distinguir maiúsculas: dois nomes iguais tornariam um deles inacessível
+    private static void checkUniqueName(Collection<String> names, String name) throws IOException {
+        for (String other : names) {
+            if (other.equalsIgnoreCase(name)) {
+                throw new IOException("Quiz repetido no ficheiro de perguntas: " + name);
+            }
+        }
+    }
+
+    public List<String> getQuizNames() {
+        return Collections.unmodifiableList(new ArrayList<>(offsetsByQuiz.keySet()));
+    }
+
+    // Quiz cujas perguntas só são lidas quando pedidas. Devolve null se o nome não existe.
+    public Quiz getQuiz(String name) {
+        long[] offsets = offsetsByQuiz.get(name);
+        if (offsets == null) return null;
+        return new Quiz(name, new LazyQuestions(offsets));
+    }
+
+    Question question(long offset) {
+        cacheLock.lock();
+        try {
+            Question cached = cache.get(offset);
+            if (cached != null) return cached;
+        } finally {
+            cacheLock.unlock();
+        }
+
+        // A leitura é feita fora do lock (leituras posicionais no canal são seguras entre threads)
+        Question q;
+        try {
+            q = readQuestion(offset);
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro a ler a pergunta na posição " + offset, e);
+        }
+
+        cacheLock.lock();
+        try {
+            cache.put(offset, q);
+        } finally {
+            cacheLock.unlock();
+        }
+        return q;
+    }
+
+    private Question readQuestion(long offset) throws IOException {
+        ByteBuffer sizeBuf = ByteBuffer.allocate(4);
+        readFully(sizeBuf, offset);
+        ByteBuffer buf = ByteBuffer.allocate(sizeBuf.getInt(0));
+        readFully(buf, offset + 4);
+        buf.flip();
+
+        String text = readString(buf);
+        int points = buf.getInt();
+        int correct = buf.getInt();
+        int numOptions = buf.getInt();
+        List<String> options = new ArrayList<>(numOptions);
+        for (int i = 0; i < numOptions; i++) {
+            options.add(readString(buf));
+        }
+        return new Question(text, points, correct, options);
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Fim inesperado do ficheiro de perguntas");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (temporaryFile != null) {
+            temporaryFile.delete();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getInt()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // Lista só de leitura que lê cada pergunta do banco (via cache) quando é pedida
+    private class LazyQuestions extends AbstractList<Question> {
+        private final long[] offsets;
+
+        LazyQuestions(long[] offsets) {
+            this.offsets = offsets;
+        }
+
+        @Override
+        public Question get(int index) {
+            return question(offsets[index]);
+        }
+
+        @Override
+        public int size() {
+            return offsets.length;
+        }
+    }
+
+    // Compila o JSON para um banco binário, para arrancar o servidor sem voltar a ler o JSON:
+    //   java -cp ... utils.QuestionBank data/questions.json data/questions.bank
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Uso: java utils.QuestionBank <perguntas.json> <destino.bank>");
+            return;
+        }
+        compile(args[0], args[1]);
+        try (QuestionBank bank = open(args[1], 0)) {
+            for (String name : bank.getQuizNames()) {
+                System.out.println(name + ": " + bank.getQuiz(name).getQuestions().size() + " perguntas");
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameCodeAllocatorTest {
+
+    @Test
+    void allocatesEveryCodeOnceThenRunsOut() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < GameCodeAllocator.CAPACITY; i++) {
+            String code = codes.allocate();
+            assertNotNull(code);
+            assertTrue(code.matches("[A-Z]{4}"), code);
+            assertTrue(seen.add(code), "código repetido: " + code);
+        }
+        assertEquals(GameCodeAllocator.CAPACITY, codes.inUse());
+        assertNull(codes.allocate(), "já não há códigos livres");
+    }
+
+    // Com a fila cheia de voltas, os libertados saem pela ordem em que voltaram
+    @Test
+    void releasedCodesComeBackInOrderAfterWrapAround() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        String[] all = new String[GameCodeAllocator.CAPACITY];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = codes.allocate();
+        }
+        codes.release(all[10]);
+        codes.release(all[3]);
+        codes.release(all[7]);
+        assertEquals(GameCodeAllocator.CAPACITY - 3, codes.inUse());
+        assertEquals(all[10], codes.allocate());
+        assertEquals(all[3], codes.allocate());
+        codes.release(all[0]);
+        assertEquals(all[7], codes.allocate());
+        assertEquals(all[0], codes.allocate());
+        assertNull(codes.allocate());
+    }
+
+    @Test
+    void releasedCodeWaitsBehindTheOtherFreeCodes() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        String first = codes.allocate();
+        codes.release(first);
+        for (int i = 0; i < GameCodeAllocator.CAPACITY - 1; i++) {
+            String code = codes.allocate();
+            assertNotEquals(first, code, "código libertado saiu antes dos outros livres");
+        }
+        assertEquals(first, codes.allocate());
+    }
+
+    @Test
+    void invalidOrExtraReleasesAreIgnored() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        codes.release("ABCD");
+        codes.release(null);
+        codes.release("abcd");
+        codes.release("ABC");
+        assertEquals(0, codes.inUse());
+        String code = codes.allocate();
+        codes.release("A1CD");
+        assertEquals(1, codes.inUse());
+        codes.release(code);
+        assertEquals(0, codes.inUse());
+    }
+
+    // Libertar duas vezes (ou um código nunca alocado) não pode pôr o código duas vezes na fila
+    @Test
+    void doubleReleaseDoesNotDuplicateACode() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        String code = codes.allocate();
+        String other = codes.allocate();
+        codes.release(code);
+        codes.release(code);
+        assertEquals(1, codes.inUse());
+
+        codes.release(other);
+        codes.release(other);
+        assertEquals(0, codes.inUse());
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < GameCodeAllocator.CAPACITY; i++) {
+            assertTrue(seen.add(codes.allocate()), "código dado a dois jogos");
+        }
+        assertNull(codes.allocate());
+    }
+
+    @Test
+    void releaseOfACodeNeverAllocatedIsIgnored() {
+        GameCodeAllocator codes = new GameCodeAllocator();
+        String code = codes.allocate();
+        String free = code.equals("AAAA") ? "AAAB" : "AAAA";
+        codes.release(free);
+        assertEquals(1, codes.inUse());
+        Set<String> seen = new HashSet<>();
+        seen.add(code);
+        for (int i = 0; i < GameCodeAllocator.CAPACITY - 1; i++) {
+            assertTrue(seen.add(codes.allocate()), "código dado a dois jogos");
+        }
+        assertNull(codes.allocate());
+    }
+}
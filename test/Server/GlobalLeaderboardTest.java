@@ -0,0 +1,123 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalLeaderboardTest {
+
+    private static List<String> names(List<GlobalLeaderboard.Entry> entries) {
+        List<String> names = new ArrayList<>();
+        for (GlobalLeaderboard.Entry e : entries) {
+            names.add(e.name != null ? e.name : e.gameId + ":" + e.index);
+        }
+        return names;
+    }
+
+    @Test
+    void topOrdersByPointsAcrossGames() {
+        GlobalLeaderboard global = new GlobalLeaderboard();
+        GlobalLeaderboard.Board a = new GlobalLeaderboard.Board("AAAA", 2, 2);
+        GlobalLeaderboard.Board b = new GlobalLeaderboard.Board("BBBB", 2, 1);
+        global.updatePlayer(a, 0, "ana", 10);
+        global.updatePlayer(a, 1, "rui", 30);
+        global.updatePlayer(b, 0, "eva", 20);
+        global.updatePlayer(b, 1, "leo", 10);
+        // Mais pontos do mesmo jogador substituem a entrada anterior
+        global.updatePlayer(a, 0, "ana", 25);
+
+        assertEquals(List.of("rui", "ana", "eva", "leo"), names(global.topPlayers(10)));
+        assertEquals(List.of("rui", "ana"), names(global.topPlayers(2)));
+
+        global.updateTeam(a, 0, 5);
+        global.updateTeam(a, 1, 9);
+        global.updateTeam(b, 0, 9);
+        assertEquals(List.of("AAAA:1", "BBBB:0", "AAAA:0"), names(global.topTeams(10)));
+    }
+
+    @Test
+    void lateUpdateWithFewerPointsIsIgnored() {
+        GlobalLeaderboard global = new GlobalLeaderboard();
+        GlobalLeaderboard.Board board = new GlobalLeaderboard.Board("AAAA", 1, 1);
+        global.updatePlayer(board, 0, "ana", 20);
+        global.updatePlayer(board, 0, "ana", 15);
+        List<GlobalLeaderboard.Entry> top = global.topPlayers(10);
+        assertEquals(1, top.size());
+        assertEquals(20, top.get(0).score);
+    }
+
+    @Test
+    void removedPlayerStaysOutUntilSomeoneTakesTheSlot() {
+        GlobalLeaderboard global = new GlobalLeaderboard();
+        GlobalLeaderboard.Board board = new GlobalLeaderboard.Board("AAAA", 2, 1);
+        global.updatePlayer(board, 0, "ana", 10);
+        global.updatePlayer(board, 1, "rui", 5);
+
+        global.removePlayer(board, 0);
+        assertEquals(List.of("rui"), names(global.topPlayers(10)));
+        // Atualização atrasada de quem saiu não volta a entrar
+        global.updatePlayer(board, 0, "ana", 50);
+        assertEquals(List.of("rui"), names(global.topPlayers(10)));
+
+        // Novo jogador no mesmo lugar
+        global.playerJoined(board, 0);
+        global.updatePlayer(board, 0, "eva", 0);
+        assertEquals(List.of("rui", "eva"), names(global.topPlayers(10)));
+    }
+
+    @Test
+    void removeGameDropsOnlyThatGame() {
+        GlobalLeaderboard global = new GlobalLeaderboard();
+        GlobalLeaderboard.Board a = new GlobalLeaderboard.Board("AAAA", 2, 1);
+        GlobalLeaderboard.Board b = new GlobalLeaderboard.Board("BBBB", 1, 1);
+        global.updatePlayer(a, 0, "ana", 10);
+        global.updatePlayer(a, 1, "rui", 5);
+        global.updatePlayer(b, 0, "eva", 7);
+        global.updateTeam(a, 0, 15);
+        global.updateTeam(b, 0, 7);
+        global.removePlayer(a, 1);
+
+        global.removeGame(a);
+        assertEquals(List.of("eva"), names(global.topPlayers(10)));
+        assertEquals(List.of("BBBB:0"), names(global.topTeams(10)));
+
+        // Depois de o jogo sair, nada dele volta: nem atualizações, nem um jogador que se sente a seguir
+        global.updatePlayer(a, 0, "ana", 99);
+        global.updateTeam(a, 0, 99);
+        global.playerJoined(a, 1);
+        global.updatePlayer(a, 1, "leo", 99);
+        global.removePlayer(a, 0);
+        assertEquals(List.of("eva"), names(global.topPlayers(10)));
+        assertEquals(List.of("BBBB:0"), names(global.topTeams(10)));
+    }
+
+    // Atualizações concorrentes da mesma equipa deixam uma só entrada, com os pontos maiores
+    @Test
+    void concurrentUpdatesLeaveOneEntryPerTeam() throws InterruptedException {
+        GlobalLeaderboard global = new GlobalLeaderboard();
+        GlobalLeaderboard.Board board = new GlobalLeaderboard.Board("AAAA", 1, 2);
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            final int offset = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    global.updateTeam(board, i % 2, i * writers.length + offset);
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread w : writers) {
+            w.join();
+        }
+        List<GlobalLeaderboard.Entry> top = global.topTeams(10);
+        assertEquals(2, top.size());
+        int max = 4999 * writers.length + writers.length - 1;
+        assertEquals(1, top.get(0).index);
+        assertEquals(max, top.get(0).score);
+        assertTrue(top.get(1).score >= max - 2 * writers.length);
+    }
+}
@@ -0,0 +1,123 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModifiedCountDownLatchTest {
+
+    @Test
+    void firstAnswersGetTheBonus() {
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 2, 10000, 0);
+        int round = latch.reset(4);
+        assertEquals(2, latch.countDown(round));
+        assertEquals(2, latch.countDown(round));
+        assertEquals(1, latch.countDown(round));
+        assertEquals(1, latch.countDown(round));
+        assertEquals(0, latch.getRemaining());
+        // Respostas a mais (ex: jogador que entrou a meio) não contam nem baixam de zero
+        assertEquals(1, latch.countDown(round));
+        assertEquals(0, latch.getRemaining());
+    }
+
+    @Test
+    void onZeroReportsTheRoundOnce() {
+        List<Integer> zeros = new CopyOnWriteArrayList<>();
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 10000, 0, zeros::add);
+        int round = latch.reset(2);
+        latch.countDown(round);
+        assertTrue(zeros.isEmpty());
+        latch.countDown(round);
+        latch.countDown(round);
+        assertEquals(List.of(round), zeros);
+    }
+
+    @Test
+    void answerFromAnotherRoundDoesNotCount() {
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 10000, 0);
+        int old = latch.reset(3);
+        latch.countDown(old);
+        int round = latch.reset(2);
+        assertNotEquals(old, round);
+
+        assertEquals(0, latch.countDown(old), "resposta atrasada da ronda anterior");
+        assertEquals(2, latch.getRemaining());
+        // O bónus da ronda nova continua por atribuir
+        assertEquals(2, latch.countDown(round));
+    }
+
+    @Test
+    void resetRejectsInvalidCounts() {
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 10000, 0);
+        assertThrows(IllegalArgumentException.class, () -> latch.reset(-1));
+        assertThrows(IllegalArgumentException.class, () -> latch.reset(ModifiedCountDownLatch.MAX_COUNT + 1));
+    }
+
+    @Test
+    void awaitReturnsWhenEveryoneAnswered() throws InterruptedException {
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 10000, 0);
+        int round = latch.reset(1);
+        Thread answer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {}
+            latch.countDown(round);
+        });
+        long start = System.nanoTime();
+        answer.start();
+        latch.await();
+        assertTrue(System.nanoTime() - start < 5_000_000_000L, "não esperou pelo tempo todo");
+        assertEquals(0, latch.getRemaining());
+        answer.join();
+    }
+
+    @Test
+    void awaitTimesOut() throws InterruptedException {
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(2, 1, 100, 0);
+        latch.reset(1);
+        long start = System.nanoTime();
+        latch.await();
+        assertTrue(System.nanoTime() - start >= 90_000_000L);
+        assertEquals(1, latch.getRemaining());
+    }
+
+    // Muitas threads ao mesmo tempo: o bónus vai para exatamente bonusCount respostas e onZero corre uma vez
+    @Test
+    void concurrentAnswersGetExactlyBonusCountBonuses() throws InterruptedException {
+        int threads = 8, perThread = 500;
+        AtomicInteger zeros = new AtomicInteger();
+        ModifiedCountDownLatch latch = new ModifiedCountDownLatch(3, 5, 10000, 0, r -> zeros.incrementAndGet());
+        int round = latch.reset(threads * perThread);
+        AtomicInteger bonuses = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (latch.countDown(round) == 3) bonuses.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        go.countDown();
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(5, bonuses.get());
+        assertEquals(1, zeros.get());
+        assertEquals(0, latch.getRemaining());
+    }
+}
@@ -0,0 +1,115 @@
+package Server;
+
+import common.Msg;
+import common.ScoreUpdate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundQueueTest {
+    private static final long NO_LAG_LIMIT = 60_000;
+
+    private static EncodedMsg question(String text) {
+        return new EncodedMsg(new Msg(Msg.Type.NEW_QUESTION, text));
+    }
+
+    private static EncodedMsg score(ScoreUpdate update) {
+        return new EncodedMsg(new Msg(Msg.Type.UPDATE_SCORE, update));
+    }
+
+    @Test
+    void deliversInOrderUntilFull() {
+        OutboundQueue queue = new OutboundQueue(3, NO_LAG_LIMIT, new OutboundQueue.Stats());
+        EncodedMsg a = question("a"), b = question("b"), c = question("c");
+        assertTrue(queue.offer(a));
+        assertTrue(queue.offer(b));
+        assertTrue(queue.offer(c));
+        assertFalse(queue.offer(question("d")), "fila cheia");
+        assertEquals(3, queue.depth());
+
+        assertSame(a, queue.poll());
+        assertSame(b, queue.poll());
+        assertSame(c, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void pendingScoreboardIsReplacedAndMerged() {
+        OutboundQueue.Stats stats = new OutboundQueue.Stats();
+        OutboundQueue queue = new OutboundQueue(8, NO_LAG_LIMIT, stats);
+        int[] start = {0, 0, 0};
+        int[] afterFirst = {5, 0, 0};
+        int[] afterSecond = {5, 7, 0};
+        queue.offer(score(ScoreUpdate.delta(1, 1, 10, start, afterFirst)));
+        EncodedMsg q2 = question("pergunta 2");
+        queue.offer(q2);
+        queue.offer(score(ScoreUpdate.delta(2, 2, 10, afterFirst, afterSecond)));
+
+        assertEquals(2, queue.depth());
+        assertEquals(1, stats.coalesced.sum());
+        // A pergunta fica à frente; o placar novo vai para o fim com as equipas dos dois deltas
+        assertSame(q2, queue.poll());
+        ScoreUpdate merged = (ScoreUpdate) queue.poll().getMsg().content;
+        assertEquals(2, merged.getSequence());
+        assertArrayEquals(afterSecond, merged.applyTo(start.clone()));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void holesAreCompactedWhenTheQueueFills() {
+        OutboundQueue queue = new OutboundQueue(3, NO_LAG_LIMIT, new OutboundQueue.Stats());
+        int[] scores = {1};
+        queue.offer(question("a"));
+        queue.offer(score(ScoreUpdate.full(1, 1, 2, scores)));
+        queue.offer(question("b"));
+        // Substitui o placar do meio: o buraco é reaproveitado em vez de a fila parecer cheia
+        assertTrue(queue.offer(score(ScoreUpdate.full(2, 2, 2, scores))));
+        assertEquals(3, queue.depth());
+        assertEquals("a", queue.poll().getMsg().content);
+        assertEquals("b", queue.poll().getMsg().content);
+        assertEquals(Msg.Type.UPDATE_SCORE, queue.poll().getMsg().type);
+    }
+
+    @Test
+    void slowConsumerIsRejected() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(8, 50, new OutboundQueue.Stats());
+        assertTrue(queue.offer(question("a")));
+        Thread.sleep(120);
+        assertFalse(queue.offer(question("b")), "mensagem mais antiga passou do atraso máximo");
+    }
+
+    // Um buraco deixado por um placar substituído não pode contar como a mensagem mais antiga
+    @Test
+    void holeAtHeadDoesNotEvictAHealthyClient() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(8, 200, new OutboundQueue.Stats());
+        int[] scores = {1};
+        queue.offer(question("a"));
+        queue.offer(score(ScoreUpdate.full(1, 1, 2, scores)));
+        Thread.sleep(150);
+        queue.offer(question("b"));
+        queue.offer(score(ScoreUpdate.full(2, 2, 2, scores)));
+        queue.poll();
+        Thread.sleep(100);
+        // A mais antiga por enviar é "b" (100 ms), não o placar substituído (250 ms)
+        assertTrue(queue.offer(question("c")));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        OutboundQueue.Stats stats = new OutboundQueue.Stats();
+        OutboundQueue queue = new OutboundQueue(4, NO_LAG_LIMIT, stats);
+        queue.offer(question("a"));
+        queue.offer(question("b"));
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertEquals(0, stats.totalDepth.sum());
+        assertTrue(queue.offer(question("c")));
+    }
+}
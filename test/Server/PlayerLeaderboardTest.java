@@ -0,0 +1,123 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlayerLeaderboardTest {
+
+    @Test
+    void rankFollowsPointsAndTiesBreakBySlot() {
+        PlayerLeaderboard board = new PlayerLeaderboard(4);
+        for (int s = 0; s < 4; s++) {
+            board.join(s);
+        }
+        assertEquals(4, board.size());
+        // Todos a 0: ordem pelo lugar
+        assertEquals(1, board.rank(0));
+        assertEquals(4, board.rank(3));
+
+        assertEquals(10, board.addPoints(2, 10));
+        assertEquals(10, board.addPoints(3, 10));
+        assertEquals(15, board.addPoints(1, 15));
+        assertEquals(1, board.rank(1));
+        assertEquals(2, board.rank(2));
+        assertEquals(3, board.rank(3));
+        assertEquals(4, board.rank(0));
+        assertEquals(15, board.score(1));
+    }
+
+    @Test
+    void topReturnsFirstKInOrder() {
+        PlayerLeaderboard board = new PlayerLeaderboard(5);
+        int[] points = {3, 9, 0, 9, 5};
+        for (int s = 0; s < points.length; s++) {
+            board.join(s);
+            board.addPoints(s, points[s]);
+        }
+        int[] slots = new int[3];
+        int[] scores = new int[3];
+        assertEquals(3, board.top(3, slots, scores));
+        assertArrayEquals(new int[]{1, 3, 4}, slots);
+        assertArrayEquals(new int[]{9, 9, 5}, scores);
+
+        // Pedir mais do que há jogadores
+        int[] all = new int[8];
+        assertEquals(5, board.top(10, all, new int[8]));
+        assertArrayEquals(new int[]{1, 3, 4, 0, 2}, Arrays.copyOf(all, 5));
+    }
+
+    @Test
+    void leaveAndJoinUpdateTheRanking() {
+        PlayerLeaderboard board = new PlayerLeaderboard(3);
+        board.join(0);
+        board.join(1);
+        board.addPoints(0, 5);
+        board.addPoints(1, 8);
+        board.join(1);
+        assertEquals(8, board.score(1), "entrar duas vezes não apaga os pontos");
+
+        board.leave(1);
+        assertEquals(1, board.size());
+        assertEquals(0, board.rank(1));
+        assertEquals(-1, board.addPoints(1, 3), "fora da classificação");
+        assertEquals(1, board.rank(0));
+
+        // Quem volta ao lugar recomeça a 0
+        board.join(1);
+        board.join(2);
+        assertEquals(3, board.size());
+        assertEquals(0, board.score(1));
+        assertEquals(1, board.rank(0));
+        assertEquals(2, board.rank(1));
+        assertEquals(3, board.rank(2));
+        assertEquals(0, board.rank(-1));
+        assertEquals(0, board.rank(3));
+    }
+
+    // Comparado com uma ordenação completa depois de cada passo
+    @Test
+    void matchesSortedOrderAfterRandomChanges() {
+        int n = 200;
+        PlayerLeaderboard board = new PlayerLeaderboard(n);
+        Random random = new Random(7);
+        int[] points = new int[n];
+        boolean[] in = new boolean[n];
+        for (int step = 0; step < 5000; step++) {
+            int s = random.nextInt(n);
+            int op = random.nextInt(10);
+            if (op == 0) {
+                board.leave(s);
+                in[s] = false;
+            } else if (!in[s]) {
+                board.join(s);
+                in[s] = true;
+                points[s] = 0;
+            } else {
+                points[s] += random.nextInt(20);
+                board.addPoints(s, points[s] - board.score(s));
+            }
+        }
+        Integer[] order = new Integer[n];
+        int count = 0;
+        for (int s = 0; s < n; s++) {
+            if (in[s]) order[count++] = s;
+        }
+        Integer[] expected = Arrays.copyOf(order, count);
+        Arrays.sort(expected, (a, b) -> points[a] != points[b] ? Integer.compare(points[b], points[a]) : Integer.compare(a, b));
+
+        assertEquals(count, board.size());
+        int[] slots = new int[count];
+        int[] scores = new int[count];
+        assertEquals(count, board.top(count, slots, scores));
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], slots[i]);
+            assertEquals(points[expected[i]], scores[i]);
+            assertEquals(i + 1, board.rank(expected[i]));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerConfigTest {
+
+    @Test
+    void builderStartsFromDefaults() {
+        ServerConfig config = ServerConfig.builder().build();
+        assertEquals(ServerConfig.ThreadMode.PLATFORM, config.getThreadMode());
+        assertEquals(ServerConfig.Engine.BLOCKING, config.getEngine());
+        assertEquals(ServerConfig.AnswerMode.DIRECT, config.getAnswerMode());
+        assertEquals(ServerConfig.DEFAULT_PORT, config.getPort());
+        assertEquals(-1, config.getMetricsPort());
+        assertTrue(config.isQuizWatch());
+        assertNull(config.getJournalDir(), "diário desligado por omissão");
+        assertEquals(ServerConfig.DEFAULT_JOURNAL_SEGMENT_MB << 20, config.getJournalSegmentSize());
+    }
+
+    @Test
+    void builderSetsEachGroupAndClampsInvalidValues() {
+        ServerConfig config = ServerConfig.builder()
+                .engine(ServerConfig.Engine.NIO)
+                .nioLoops(0)
+                .outboundQueue(0, 500)
+                .gameThreads(-3)
+                .quizCacheSize(-1)
+                .quizWatch(false)
+                .port(0)
+                .journal("diario", 0, 0)
+                .build();
+        assertEquals(ServerConfig.Engine.NIO, config.getEngine());
+        assertEquals(1, config.getNioLoops());
+        assertEquals(1, config.getOutboundQueueSize());
+        assertEquals(500, config.getOutboundMaxLagMillis());
+        assertEquals(1, config.getGameThreads());
+        assertEquals(0, config.getQuizCacheSize());
+        assertFalse(config.isQuizWatch());
+        assertEquals(0, config.getPort());
+        assertEquals("diario", config.getJournalDir());
+        assertEquals(1 << 20, config.getJournalSegmentSize());
+        assertEquals(1, config.getJournalFlushMillis());
+    }
+
+    // As propriedades do sistema dão o ponto de partida; o builder ainda as pode mudar
+    @Test
+    void systemPropertiesCanBeOverridden() {
+        System.setProperty("iskahoot.answers", "inbox");
+        System.setProperty("iskahoot.port", "4321");
+        try {
+            ServerConfig.Builder builder = ServerConfig.systemProperties();
+            assertEquals(4321, builder.build().getPort());
+            ServerConfig config = builder.port(0).build();
+            assertEquals(ServerConfig.AnswerMode.INBOX, config.getAnswerMode());
+            assertEquals(0, config.getPort());
+        } finally {
+            System.clearProperty("iskahoot.answers");
+            System.clearProperty("iskahoot.port");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package Server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TeamBarrierTest {
+
+    @Test
+    void teamCompletesAndBarrierTripsOnce() {
+        List<String> completed = new CopyOnWriteArrayList<>();
+        List<Integer> trips = new CopyOnWriteArrayList<>();
+        TeamBarrier barrier = new TeamBarrier(2, (round, team) -> completed.add(round + ":" + team), trips::add);
+        int round = barrier.reset(new int[]{2, 1});
+
+        assertTrue(barrier.playerFinished(round, 0));
+        assertTrue(completed.isEmpty());
+        assertTrue(barrier.playerFinished(round, 1));
+        assertEquals(List.of(round + ":1"), completed);
+        assertFalse(barrier.allResponded());
+
+        assertTrue(barrier.playerFinished(round, 0));
+        assertEquals(List.of(round + ":1", round + ":0"), completed);
+        assertTrue(barrier.allResponded());
+        assertEquals(List.of(round), trips);
+
+        // Equipa já completa: a resposta a mais não conta
+        assertFalse(barrier.playerFinished(round, 0));
+        assertEquals(1, trips.size());
+    }
+
+    @Test
+    void emptyTeamsDoNotHoldTheBarrier() {
+        AtomicInteger trips = new AtomicInteger();
+        TeamBarrier barrier = new TeamBarrier(3, null, r -> trips.incrementAndGet());
+        int round = barrier.reset(new int[]{1, 0, 0});
+        barrier.playerFinished(round, 0);
+        assertTrue(barrier.allResponded());
+        assertEquals(1, trips.get());
+    }
+
+    @Test
+    void resetStartsANewRound() {
+        List<Integer> trips = new CopyOnWriteArrayList<>();
+        TeamBarrier barrier = new TeamBarrier(1, null, trips::add);
+        int first = barrier.reset(new int[]{1});
+        barrier.playerFinished(first, 0);
+        int second = barrier.reset(new int[]{2});
+        assertEquals((first + 1) & 0xFFFF, second);
+        assertFalse(barrier.allResponded());
+
+        barrier.playerFinished(second, 0);
+        barrier.playerFinished(second, 0);
+        assertEquals(List.of(first, second), trips);
+    }
+
+    @Test
+    void answerFromAnotherRoundIsIgnored() {
+        List<String> completed = new CopyOnWriteArrayList<>();
+        TeamBarrier barrier = new TeamBarrier(1, (round, team) -> completed.add(round + ":" + team), null);
+        int old = barrier.reset(new int[]{1});
+        int round = barrier.reset(new int[]{1});
+
+        assertFalse(barrier.playerFinished(old, 0), "resposta atrasada da ronda anterior");
+        assertFalse(barrier.allResponded());
+        assertTrue(completed.isEmpty());
+
+        assertTrue(barrier.playerFinished(round, 0));
+        assertEquals(List.of(round + ":0"), completed);
+    }
+
+    @Test
+    void unknownTeamIsIgnored() {
+        TeamBarrier barrier = new TeamBarrier(2, null, null);
+        int round = barrier.reset(new int[]{1, 1});
+        assertFalse(barrier.playerFinished(round, -1));
+        assertFalse(barrier.playerFinished(round, 2));
+    }
+
+    @Test
+    void concurrentPlayersTripOnce() throws InterruptedException {
+        int teams = 4, perTeam = 1000;
+        AtomicInteger teamDone = new AtomicInteger();
+        AtomicInteger trips = new AtomicInteger();
+        TeamBarrier barrier = new TeamBarrier(teams, (r, t) -> teamDone.incrementAndGet(), r -> trips.incrementAndGet());
+        int[] members = new int[teams];
+        Arrays.fill(members, perTeam);
+        int round = barrier.reset(members);
+
+        Thread[] players = new Thread[8];
+        for (int p = 0; p < players.length; p++) {
+            final int team = p % teams;
+            players[p] = new Thread(() -> {
+                for (int i = 0; i < perTeam / 2; i++) {
+                    barrier.playerFinished(round, team);
+                }
+            });
+            players[p].start();
+        }
+        for (Thread p : players) {
+            p.join();
+        }
+        assertEquals(teams, teamDone.get());
+        assertEquals(1, trips.get());
+        assertTrue(barrier.allResponded());
+    }
+}
@@ -0,0 +1,120 @@
+package common;
+
+import model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MsgFramesTest {
+
+    // Escreve e volta a ler pelo mesmo caminho que as ligações (write/read sobre streams)
+    private static Msg roundTrip(Msg msg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MsgFrames.write(new DataOutputStream(bytes), msg);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Msg read = MsgFrames.read(in);
+        assertEquals(-1, in.read(), "sobraram bytes depois da frame");
+        return read;
+    }
+
+    @Test
+    void simpleContentRoundTrip() throws IOException {
+        assertEquals("João|ABCD|2", roundTrip(new Msg(Msg.Type.LOGIN, "João|ABCD|2")).content);
+        assertEquals(3, roundTrip(new Msg(Msg.Type.SEND_ANSWER, 3)).content);
+        assertEquals(-70000, roundTrip(new Msg(Msg.Type.SEND_ANSWER, -70000)).content);
+        Msg ok = roundTrip(new Msg(Msg.Type.LOGIN_OK, null));
+        assertEquals(Msg.Type.LOGIN_OK, ok.type);
+        assertNull(ok.content);
+    }
+
+    @Test
+    void questionRoundTrip() throws IOException {
+        Question q = new Question("Qual é a capital?", 5, 2, Arrays.asList("Lisboa", "Porto", "Faro", "Braga"));
+        Msg read = roundTrip(new Msg(Msg.Type.NEW_QUESTION, q));
+        Question r = (Question) read.content;
+        assertEquals(Msg.Type.NEW_QUESTION, read.type);
+        assertEquals(q.getQuestion(), r.getQuestion());
+        assertEquals(q.getPoints(), r.getPoints());
+        assertEquals(q.getCorrect(), r.getCorrect());
+        assertEquals(q.getOptions(), r.getOptions());
+    }
+
+    @Test
+    void scoreUpdateRoundTrip() throws IOException {
+        ScoreUpdate delta = ScoreUpdate.delta(7, 3, 10, new int[]{5, 10, 0}, new int[]{5, 20, 4});
+        ScoreUpdate u = (ScoreUpdate) roundTrip(new Msg(Msg.Type.UPDATE_SCORE, delta)).content;
+        assertEquals(7, u.getSequence());
+        assertEquals(3, u.getQuestionNumber());
+        assertEquals(10, u.getTotalQuestions());
+        assertFalse(u.isFull());
+        assertFalse(u.hasRanking());
+        assertArrayEquals(new int[]{5, 20, 4}, u.applyTo(new int[]{5, 10, 0}));
+
+        ScoreUpdate ranked = ScoreUpdate.full(8, 10, 10, new int[]{1, 2})
+                .withRanking(new String[]{"ana", "rui"}, new int[]{9, 4}, 2, 4, 30);
+        u = (ScoreUpdate) roundTrip(new Msg(Msg.Type.GAME_OVER, ranked)).content;
+        assertTrue(u.isFull());
+        assertTrue(u.hasRanking());
+        assertEquals(2, u.getTopCount());
+        assertEquals("rui", u.getTopName(1));
+        assertEquals(9, u.getTopScore(0));
+        assertEquals(2, u.getPlayerRank());
+        assertEquals(4, u.getPlayerScore());
+        assertEquals(30, u.getRankedPlayers());
+    }
+
+    @Test
+    void decodeUsesPayloadWithoutHeader() throws IOException {
+        byte[] frame = MsgFrames.encode(new Msg(Msg.Type.LOGIN_ERROR, "Jogo cheio"));
+        Msg msg = MsgFrames.decode(frame, MsgFrames.HEADER_SIZE, frame.length - MsgFrames.HEADER_SIZE);
+        assertEquals(Msg.Type.LOGIN_ERROR, msg.type);
+        assertEquals("Jogo cheio", msg.content);
+    }
+
+    // O placar partilhado + posição de cada jogador tem de dar exatamente a frame de encode()
+    @Test
+    void rankingPrefixMatchesFullEncoding() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            int[] previous = new int[6];
+            int[] current = new int[6];
+            for (int t = 0; t < 6; t++) {
+                previous[t] = random.nextInt(100);
+                current[t] = random.nextInt(100);
+            }
+            ScoreUpdate u = ScoreUpdate.delta(i, 2, 10, previous, current)
+                    .withRanking(new String[]{"é", "<b>"}, new int[]{random.nextInt(), -1},
+                            random.nextInt(), random.nextInt(1 << 20) - 100, random.nextInt(100000));
+            byte[] prefix = MsgFrames.encodeRankingPrefix(Msg.Type.UPDATE_SCORE, u);
+            assertArrayEquals(MsgFrames.encode(new Msg(Msg.Type.UPDATE_SCORE, u)),
+                    MsgFrames.withPlayerRank(prefix, u.getPlayerRank(), u.getPlayerScore(), u.getRankedPlayers()));
+        }
+    }
+
+    @Test
+    void rejectsInvalidFrameLength() {
+        byte[] tooLong = {(byte) 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        assertThrows(IOException.class, () -> MsgFrames.read(new DataInputStream(new ByteArrayInputStream(tooLong))));
+        byte[] empty = {0, 0, 0, 0};
+        assertThrows(IOException.class, () -> MsgFrames.read(new DataInputStream(new ByteArrayInputStream(empty))));
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        byte[] frame = {0, 0, 0, 2, 99, 0};
+        assertThrows(IOException.class, () -> MsgFrames.read(new DataInputStream(new ByteArrayInputStream(frame))));
+    }
+}
@@ -0,0 +1,52 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WireProtocolTest {
+
+    @Test
+    void negotiatesHighestCommonVersion() {
+        assertEquals(WireProtocol.VERSION_REJECTED, WireProtocol.negotiate(0));
+        assertEquals(1, WireProtocol.negotiate(1));
+        assertEquals(WireProtocol.MAX_VERSION, WireProtocol.negotiate(WireProtocol.MAX_VERSION));
+        assertEquals(WireProtocol.MAX_VERSION, WireProtocol.negotiate(200));
+    }
+
+    @Test
+    void recognisesHelloAndLegacyHeader() {
+        byte[] hello = WireProtocol.hello(2);
+        assertEquals(WireProtocol.HELLO_SIZE, hello.length);
+        assertTrue(WireProtocol.isHello(hello, 0));
+        assertFalse(WireProtocol.isHello(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5}, 0));
+        assertTrue(WireProtocol.isLegacyHeader(0xAC, 0xED));
+        assertFalse(WireProtocol.isLegacyHeader(hello[0], hello[1]));
+    }
+
+    @Test
+    void clientHandshakeSendsHelloAndReadsVersion() throws IOException {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        DataInputStream reply = new DataInputStream(new ByteArrayInputStream(WireProtocol.hello(1)));
+        assertEquals(1, WireProtocol.clientHandshake(reply, new DataOutputStream(sent)));
+        assertArrayEquals(WireProtocol.hello(WireProtocol.MAX_VERSION), sent.toByteArray());
+    }
+
+    @Test
+    void clientHandshakeFailsWhenRejected() {
+        DataInputStream rejected = new DataInputStream(new ByteArrayInputStream(WireProtocol.hello(WireProtocol.VERSION_REJECTED)));
+        assertThrows(IOException.class, () -> WireProtocol.clientHandshake(rejected, new DataOutputStream(new ByteArrayOutputStream())));
+        DataInputStream garbage = new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}));
+        assertThrows(IOException.class, () -> WireProtocol.clientHandshake(garbage, new DataOutputStream(new ByteArrayOutputStream())));
+    }
+}